@@ -0,0 +1,99 @@
+package com.black.opensdk.uidclient.benchmark;
+
+import com.black.opensdk.uidclient.buffer.AbstractBuffer;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * 缓冲区 put/take 开销, 不包含 provider 和异步添加.
+ *
+ * <ul>
+ * <li>putTake: one thread puts an uid then takes one, the buffer stays half full</li>
+ * <li>contended: 2 producers put while 2 consumers take, in the same buffer</li>
+ * </ul>
+ *
+ * @author chen
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BufferBenchmark {
+
+  @Param({"ArrayBuffer", "RingBuffer", "LinkedBuffer", "SegmentBuffer", "DoubleBuffer",
+      "OffHeapRingBuffer"})
+  private String engine;
+
+  @Param({"4096"})
+  private int bufferSize;
+
+  private AbstractBuffer buffer;
+
+  private NoOpPaddingExecutor paddingExecutor;
+
+  private final AtomicLong sequence = new AtomicLong(0);
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    buffer = Buffers.newBuffer(engine, bufferSize);
+    // a full buffer is expected when producers outpace consumers
+    buffer.setRejectedPutHandler((buffer, uid) -> {
+    });
+    paddingExecutor = new NoOpPaddingExecutor(buffer);
+    buffer.setBufferPaddingExecutor(paddingExecutor);
+
+    for (int i = 0; i < bufferSize / 2; i++) {
+      buffer.put(sequence.getAndIncrement());
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    paddingExecutor.shutdown();
+  }
+
+  @Benchmark
+  @Group("putTake")
+  public long putTake() {
+    buffer.put(sequence.getAndIncrement());
+    return buffer.take();
+  }
+
+  @Benchmark
+  @Group("contended")
+  @GroupThreads(2)
+  public boolean contendedPut() {
+    return buffer.put(sequence.getAndIncrement());
+  }
+
+  @Benchmark
+  @Group("contended")
+  @GroupThreads(2)
+  public int contendedTake(TakeHolder holder) {
+    // take(long[], int) returns 0 instead of rejecting when the buffer is empty
+    return buffer.take(holder.uids, 1);
+  }
+
+  @State(Scope.Thread)
+  public static class TakeHolder {
+
+    private final long[] uids = new long[1];
+  }
+}
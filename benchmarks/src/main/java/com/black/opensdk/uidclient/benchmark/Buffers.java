@@ -0,0 +1,50 @@
+package com.black.opensdk.uidclient.benchmark;
+
+import com.black.opensdk.uidclient.buffer.AbstractBuffer;
+import com.black.opensdk.uidclient.buffer.ArrayBuffer;
+import com.black.opensdk.uidclient.buffer.DoubleBuffer;
+import com.black.opensdk.uidclient.buffer.ElasticBuffer;
+import com.black.opensdk.uidclient.buffer.LinkedBuffer;
+import com.black.opensdk.uidclient.buffer.OffHeapRingBuffer;
+import com.black.opensdk.uidclient.buffer.RingBuffer;
+import com.black.opensdk.uidclient.buffer.SegmentBuffer;
+
+/**
+ * 按名称创建缓冲区, 供 {@code @Param} 选择引擎.
+ *
+ * @author chen
+ */
+final class Buffers {
+
+  static final int UNDER_PADDING_PERCENT = 30;
+  static final int UPPER_PADDING_PERCENT = 80;
+
+  private Buffers() {
+  }
+
+  /**
+   * @param engine simple class name of the buffer
+   * @param bufferSize must be a power of 2
+   */
+  static AbstractBuffer newBuffer(String engine, int bufferSize) {
+    switch (engine) {
+      case "ArrayBuffer":
+        return new ArrayBuffer(bufferSize, UNDER_PADDING_PERCENT, UPPER_PADDING_PERCENT);
+      case "RingBuffer":
+        return new RingBuffer(bufferSize, UNDER_PADDING_PERCENT, UPPER_PADDING_PERCENT);
+      case "LinkedBuffer":
+        return new LinkedBuffer(bufferSize, UNDER_PADDING_PERCENT, UPPER_PADDING_PERCENT);
+      case "SegmentBuffer":
+        return new SegmentBuffer(bufferSize, UNDER_PADDING_PERCENT, UPPER_PADDING_PERCENT);
+      case "DoubleBuffer":
+        return new DoubleBuffer(bufferSize, UNDER_PADDING_PERCENT, UPPER_PADDING_PERCENT);
+      case "OffHeapRingBuffer":
+        return new OffHeapRingBuffer(bufferSize, UNDER_PADDING_PERCENT, UPPER_PADDING_PERCENT);
+      case "ElasticBuffer":
+        return new ElasticBuffer(bufferSize, bufferSize >> 2, bufferSize << 2,
+            UNDER_PADDING_PERCENT, UPPER_PADDING_PERCENT);
+      default:
+        throw new IllegalArgumentException("Unknown buffer engine: " + engine);
+    }
+  }
+}
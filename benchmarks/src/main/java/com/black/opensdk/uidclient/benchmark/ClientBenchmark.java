@@ -0,0 +1,78 @@
+package com.black.opensdk.uidclient.benchmark;
+
+import com.black.opensdk.uidclient.client.CachedUidGeneratorClient;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@link CachedUidGeneratorClient#getUID()} 端到端吞吐, 包含异步添加, 分别在 1/4/所有核 线程下测试.
+ *
+ * @author chen
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ClientBenchmark {
+
+  @Param({"ArrayBuffer", "RingBuffer", "LinkedBuffer", "DoubleBuffer"})
+  private String engine;
+
+  @Param({"0", "64"})
+  private int localCacheSize;
+
+  @Param({"16384"})
+  private int bufferSize;
+
+  private CachedUidGeneratorClient client;
+
+  @Setup(Level.Trial)
+  public void setUp() throws Exception {
+    client = new CachedUidGeneratorClient();
+    client.setInitBufferSize(bufferSize);
+    client.setPaddingUnderFactor(Buffers.UNDER_PADDING_PERCENT);
+    client.setPaddingUpperFactor(Buffers.UPPER_PADDING_PERCENT);
+    client.setAbstractBuffer(Buffers.newBuffer(engine, bufferSize));
+    client.setLocalCacheSize(localCacheSize);
+    client.setUidProvider(new SequenceUidProvider());
+    client.init();
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws Exception {
+    client.destroy();
+  }
+
+  @Benchmark
+  @Threads(1)
+  public long getUidSingleThread() {
+    return client.getUID();
+  }
+
+  @Benchmark
+  @Threads(4)
+  public long getUidFourThreads() {
+    return client.getUID();
+  }
+
+  @Benchmark
+  @Threads(Threads.MAX)
+  public long getUidMaxThreads() {
+    return client.getUID();
+  }
+}
@@ -0,0 +1,85 @@
+package com.black.opensdk.uidclient.benchmark;
+
+import com.black.opensdk.uidclient.buffer.AbstractBuffer;
+import com.black.opensdk.uidclient.client.CachedUidGeneratorClient;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * 缓冲区一直为空时 getUID() 的开销: 拒绝处理, 异常, 日志以及直接调用 provider.
+ *
+ * After init the buffer is drained and its padding executor replaced by
+ * {@link NoOpPaddingExecutor}, so padding never reaches the provider and every getUID() falls back
+ * to it (or to the coalesced batch when coalescingWindow is set). The provider serves any count.
+ *
+ * @author chen
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FallbackBenchmark {
+
+  @Param({"ArrayBuffer", "RingBuffer", "LinkedBuffer"})
+  private String engine;
+
+  /**
+   * Unit as microseconds, negative means that calls are not coalesced
+   */
+  @Param({"-1", "200"})
+  private long coalescingWindow;
+
+  private CachedUidGeneratorClient client;
+
+  @Setup(Level.Trial)
+  public void setUp() throws Exception {
+    AbstractBuffer buffer = Buffers.newBuffer(engine, 1 << 10);
+    client = new CachedUidGeneratorClient();
+    client.setInitBufferSize(1 << 10);
+    client.setAbstractBuffer(buffer);
+    client.setUidProvider(new SequenceUidProvider());
+    if (coalescingWindow >= 0) {
+      client.setCoalescingWindow(coalescingWindow);
+    }
+    client.init();
+
+    // padding never runs again, drain what init padded
+    buffer.setBufferPaddingExecutor(new NoOpPaddingExecutor(buffer));
+    long[] drain = new long[1 << 10];
+    while (buffer.take(drain, drain.length) > 0) {
+      // keep draining
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws Exception {
+    client.destroy();
+  }
+
+  @Benchmark
+  @Threads(1)
+  public long fallbackSingleThread() {
+    return client.getUID();
+  }
+
+  @Benchmark
+  @Threads(4)
+  public long fallbackFourThreads() {
+    return client.getUID();
+  }
+}
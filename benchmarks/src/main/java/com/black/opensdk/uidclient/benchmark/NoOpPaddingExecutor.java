@@ -0,0 +1,21 @@
+package com.black.opensdk.uidclient.benchmark;
+
+import com.black.opensdk.uidclient.buffer.AbstractBuffer;
+import com.black.opensdk.uidclient.buffer.BufferPaddingExecutor;
+
+/**
+ * 不执行异步添加的 executor, 用于单独测量缓冲区 put/take 的开销.
+ *
+ * @author chen
+ */
+public class NoOpPaddingExecutor extends BufferPaddingExecutor {
+
+  public NoOpPaddingExecutor(AbstractBuffer abstractBuffer) {
+    super(abstractBuffer, new SequenceUidProvider(), false);
+  }
+
+  @Override
+  public boolean asyncPadding() {
+    return true;
+  }
+}
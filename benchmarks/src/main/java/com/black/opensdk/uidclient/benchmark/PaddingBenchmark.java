@@ -0,0 +1,82 @@
+package com.black.opensdk.uidclient.benchmark;
+
+import com.black.opensdk.uidclient.buffer.AbstractBuffer;
+import com.black.opensdk.uidclient.buffer.BufferPaddingExecutor;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * 从空缓冲区添加至高水位的耗时, provider 每次请求模拟 latencyMicros 的网络耗时.
+ *
+ * Refill throughput is bufferSize / score; paddingConcurrency above 1 splits one refill into
+ * pipelined provider requests.
+ *
+ * @author chen
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PaddingBenchmark {
+
+  @Param({"ArrayBuffer", "RingBuffer", "LinkedBuffer", "SegmentBuffer"})
+  private String engine;
+
+  @Param({"0", "100", "1000"})
+  private long latencyMicros;
+
+  @Param({"1", "4"})
+  private int paddingConcurrency;
+
+  @Param({"16384"})
+  private int bufferSize;
+
+  private AbstractBuffer buffer;
+
+  private BufferPaddingExecutor paddingExecutor;
+
+  private long[] drained;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    buffer = Buffers.newBuffer(engine, bufferSize);
+    paddingExecutor = new BufferPaddingExecutor(buffer, new SequenceUidProvider(latencyMicros),
+        false);
+    paddingExecutor.setMaxInflightRequests(paddingConcurrency);
+    // padding is only driven by the benchmark method
+    buffer.setBufferPaddingExecutor(new NoOpPaddingExecutor(buffer));
+    drained = new long[bufferSize];
+  }
+
+  @Setup(Level.Invocation)
+  public void drain() {
+    while (buffer.take(drained, drained.length) > 0) {
+      // until empty
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    paddingExecutor.shutdown();
+  }
+
+  @Benchmark
+  public int refill() {
+    paddingExecutor.paddingBuffer();
+    return buffer.paddingNums();
+  }
+}
@@ -0,0 +1,68 @@
+package com.black.opensdk.uidclient.benchmark;
+
+import com.black.opensdk.uidclient.buffer.UidProvider;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 递增序列 provider, 每次请求模拟一次网络往返耗时.
+ *
+ * @author chen
+ */
+public class SequenceUidProvider implements UidProvider {
+
+  private final AtomicLong sequence = new AtomicLong(0);
+
+  /**
+   * 每次请求的模拟耗时 Unit as nanoseconds
+   */
+  private final long latencyNanos;
+
+  public SequenceUidProvider() {
+    this(0L);
+  }
+
+  /**
+   * @param latencyMicros simulated latency of every request, unit as microseconds
+   */
+  public SequenceUidProvider(long latencyMicros) {
+    this.latencyNanos = TimeUnit.MICROSECONDS.toNanos(latencyMicros);
+  }
+
+  @Override
+  public List<Long> provide(int count) {
+    simulateLatency();
+    long start = sequence.getAndAdd(count);
+    List<Long> list = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      list.add(start + i);
+    }
+    return list;
+  }
+
+  @Override
+  public long[] provideArray(int count) {
+    simulateLatency();
+    long start = sequence.getAndAdd(count);
+    long[] uids = new long[count];
+    for (int i = 0; i < count; i++) {
+      uids[i] = start + i;
+    }
+    return uids;
+  }
+
+  @Override
+  public Long provide() {
+    simulateLatency();
+    return sequence.getAndIncrement();
+  }
+
+  private void simulateLatency() {
+    if (latencyNanos > 0) {
+      LockSupport.parkNanos(latencyNanos);
+    }
+  }
+}
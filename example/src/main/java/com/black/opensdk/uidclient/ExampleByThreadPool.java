@@ -83,7 +83,7 @@ public class ExampleByThreadPool {
 
     log.info(cachedUidGenerator.getAbstractBuffer().toString());
 
-    System.out.println("Time ------------" + (startTime - System.currentTimeMillis()));
+    System.out.println("Time ------------" + (System.currentTimeMillis() - startTime) + " ms");
 
     /**
      * when program is shutdown , generator must destroyed
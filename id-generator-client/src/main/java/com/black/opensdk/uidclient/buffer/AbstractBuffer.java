@@ -1,7 +1,13 @@
 package com.black.opensdk.uidclient.buffer;
 
+import com.black.opensdk.uidclient.exception.BufferEmptyException;
+import com.black.opensdk.uidclient.util.RateLimitedLogger;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.util.Assert;
 
 /**
  * @Author: chen
@@ -12,6 +18,18 @@ public abstract class AbstractBuffer implements Buffer {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(AbstractBuffer.class);
 
+  /**
+   * 拒绝日志限流, 缓冲区为空或已满时每次获取/添加都会被拒绝
+   */
+  private static final RateLimitedLogger PUT_REJECT_LOGGER = new RateLimitedLogger(LOGGER);
+  private static final RateLimitedLogger TAKE_REJECT_LOGGER = new RateLimitedLogger(LOGGER);
+
+  /**
+   * 默认获取拒绝策略抛出的异常, 不记录堆栈, 缓冲区状态只在限流日志中输出
+   */
+  private static final BufferEmptyException TAKE_REJECTED =
+      new BufferEmptyException("Rejected take buffer!");
+
 
   protected int bufferSize;
   /**
@@ -24,30 +42,136 @@ public abstract class AbstractBuffer implements Buffer {
   protected BufferPaddingExecutor bufferPaddingExecutor;
 
   /**
-   * Threshold for trigger padding buffer
+   * Threshold for trigger padding buffer, may be adjusted at runtime by {@link PaddingPolicy}
+   */
+  protected volatile int paddingUnderThreshold;
+
+  /**
+   * Threshold for off padding buffer, may be adjusted at runtime by {@link PaddingPolicy}
+   */
+  protected volatile int paddingUpperThreshold;
+
+
+  /**
+   * {@link #poll()} 缓冲区为空时的返回值, 不是合法的uid (uid 均为非负数)
+   */
+  protected static final long NO_UID = Long.MIN_VALUE;
+
+  /**
+   * 等待获取uid的线程, 添加uid后唤醒
+   */
+  private final ConcurrentLinkedQueue<Thread> takeWaiters = new ConcurrentLinkedQueue<>();
+
+  /**
+   * 获取uid, 缓冲区为空时触发添加并执行获取拒绝策略
+   *
+   * @return UID
+   */
+  @Override
+  public long take() {
+    long uid = poll();
+    if (uid == NO_UID) {
+      bufferPaddingExecutor.asyncPadding();
+      rejectedTakeHandler.rejectTakeBuffer(this);
+      throw new IllegalStateException("RejectedTakeBufferHandler must throw exception");
+    }
+    return uid;
+  }
+
+  /**
+   * 获取一个uid, 达到低水位时触发添加. 缓冲区为空时返回 {@link #NO_UID}, 不执行获取拒绝策略.
+   *
+   * The default copies one uid with {@link #take(long[], int)}, buffers override it with a path
+   * that allocates nothing.
+   *
+   * @return UID, or {@link #NO_UID} if the buffer is empty
+   */
+  protected long poll() {
+    long[] holder = new long[1];
+    return take(holder, 1) == 1 ? holder[0] : NO_UID;
+  }
+
+  /**
+   * 获取uid, 缓冲区为空时通过 {@link LockSupport#parkNanos} 挂起(不占用监视器锁, 对虚拟线程友好),
+   * 直到添加线程发布新的uid或超时. 添加请求被拒绝时不等待, 直接执行获取拒绝策略.
+   *
+   * @return UID
    */
-  protected int paddingUnderThreshold;
+  @Override
+  public long take(long timeout, TimeUnit unit) {
+    long uid = poll();
+    if (uid != NO_UID) {
+      return uid;
+    }
+
+    // poll() does not request padding on an empty buffer. A request is only rejected after the
+    // padding executor or the shared scheduler is shut down, it will never refill the buffer
+    if (!bufferPaddingExecutor.asyncPadding()) {
+      rejectedTakeHandler.rejectTakeBuffer(this);
+      throw new IllegalStateException("RejectedTakeBufferHandler must throw exception");
+    }
+    long deadline = System.nanoTime() + unit.toNanos(timeout);
+    Thread current = Thread.currentThread();
+    takeWaiters.offer(current);
+    try {
+      for (; ; ) {
+        uid = poll();
+        if (uid != NO_UID) {
+          return uid;
+        }
+        long remaining = deadline - System.nanoTime();
+        if (remaining <= 0 || current.isInterrupted()) {
+          break;
+        }
+        LockSupport.parkNanos(this, remaining);
+      }
+    } finally {
+      takeWaiters.remove(current);
+    }
+
+    rejectedTakeHandler.rejectTakeBuffer(this);
+    throw new IllegalStateException("RejectedTakeBufferHandler must throw exception");
+  }
 
   /**
-   * Threshold for off padding buffer
+   * 每次添加开始前由 {@link BufferPaddingExecutor} 调用, 默认不做任何事
    */
-  protected int paddingUpperThreshold;
+  protected void beforePadding() {
+  }
 
+  /**
+   * 唤醒等待获取uid的线程, 在添加uid后调用
+   */
+  protected void signalTakeWaiters() {
+    if (takeWaiters.isEmpty()) {
+      return;
+    }
+    for (Thread waiter : takeWaiters) {
+      LockSupport.unpark(waiter);
+    }
+  }
 
   /**
    * 默认添加(put)拒绝策略 Discard policy for {@link RejectedPutBufferHandler}, we just do logging
    */
   protected void discardPutBuffer(Buffer uidBuffer, long uid) {
-    LOGGER.warn("Rejected putting buffer for uid:{}. {}", uid, uidBuffer);
+    // acquire first, uid is boxed only when the warning is logged
+    if (LOGGER.isWarnEnabled()) {
+      long suppressed = PUT_REJECT_LOGGER.acquire();
+      if (suppressed >= 0) {
+        LOGGER.warn("Rejected putting buffer for uid:{}. {} (suppressed {})", uid, uidBuffer,
+            suppressed);
+      }
+    }
   }
 
   /**
-   * 默认获取(take)拒绝策略 Policy for {@link RejectedTakeBufferHandler}, throws {@link RuntimeException}
-   * after logging
+   * 默认获取(take)拒绝策略 Policy for {@link RejectedTakeBufferHandler}, throws a preallocated
+   * {@link BufferEmptyException} after logging
    */
   protected void exceptionRejectedTakeBuffer(Buffer uidBuffer) {
-    LOGGER.warn("Rejected take buffer. {}", uidBuffer);
-    throw new RuntimeException("Rejected take buffer. " + uidBuffer);
+    TAKE_REJECT_LOGGER.warn("Rejected take buffer. {}", uidBuffer);
+    throw TAKE_REJECTED;
   }
 
   /**
@@ -56,6 +180,39 @@ public abstract class AbstractBuffer implements Buffer {
   protected RejectedPutBufferHandler rejectedPutHandler = this::discardPutBuffer;
   protected RejectedTakeBufferHandler rejectedTakeHandler = this::exceptionRejectedTakeBuffer;
 
+  /**
+   * Getters
+   */
+  public int getBufferSize() {
+    return bufferSize;
+  }
+
+  public int getPaddingUnderThreshold() {
+    return paddingUnderThreshold;
+  }
+
+  public int getPaddingUpperThreshold() {
+    return paddingUpperThreshold;
+  }
+
+  public RejectedPutBufferHandler getRejectedPutHandler() {
+    return rejectedPutHandler;
+  }
+
+  public RejectedTakeBufferHandler getRejectedTakeHandler() {
+    return rejectedTakeHandler;
+  }
+
+  /**
+   * 运行时调整高低水位, 0 <= under < upper <= bufferSize
+   */
+  public void setPaddingThresholds(int paddingUnderThreshold, int paddingUpperThreshold) {
+    Assert.isTrue(paddingUnderThreshold >= 0 && paddingUnderThreshold < paddingUpperThreshold
+        && paddingUpperThreshold <= bufferSize, "threshold must 0 <= under < upper <= bufferSize");
+    this.paddingUnderThreshold = paddingUnderThreshold;
+    this.paddingUpperThreshold = paddingUpperThreshold;
+  }
+
   /**
    * Setters
    */
@@ -0,0 +1,144 @@
+package com.black.opensdk.uidclient.buffer;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.Assert;
+
+/**
+ * 自适应添加策略: 根据观测到的获取速率和 provider 耗时调整低水位与批量大小.
+ *
+ * <pre>
+ * underThreshold = takeRate * providerLatency * safetyFactor
+ * upperThreshold = underThreshold + takeRate * coverTime
+ * </pre>
+ * Both are bounded by the upper threshold configured on the buffer, kept as a ratio of the buffer
+ * size so the bound follows a resized {@link ElasticBuffer}. The buffer never empties while a
+ * refill is in flight, and holds only a few uids when the traffic is low.
+ *
+ * @author chen
+ */
+public class AdaptivePaddingPolicy implements PaddingPolicy {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(AdaptivePaddingPolicy.class);
+
+  /**
+   * 默认安全系数 和 低水位之上覆盖的时间
+   */
+  public static final double DEFAULT_SAFETY_FACTOR = 2.0D;
+  public static final long DEFAULT_COVER_TIME = 1000L;
+
+  /**
+   * 指数加权平均系数
+   */
+  private static final double EWMA_ALPHA = 0.3D;
+
+  private final double safetyFactor;
+
+  private final long coverNanos;
+
+  private final LongSupplier nanoClock;
+
+  /**
+   * 水位调整范围, 取缓冲区初始配置的高水位占容量的比例为上限, 每次按当前容量计算
+   */
+  private double maxUpperRatio = -1D;
+
+  /**
+   * 观测值: uid/ns, ns
+   */
+  private double takeRate = -1D;
+  private double providerLatencyNanos = -1D;
+
+  /**
+   * 上次采样
+   */
+  private long lastSampleNanos;
+  private long lastRemaining;
+  private long lastPaddedUids;
+
+  public AdaptivePaddingPolicy() {
+    this(DEFAULT_SAFETY_FACTOR, DEFAULT_COVER_TIME);
+  }
+
+  /**
+   * @param safetyFactor 低水位覆盖 provider 耗时的倍数, must not less than 1
+   * @param coverTime 低水位之上缓存的uid可支撑的时间 Unit as milliseconds
+   */
+  public AdaptivePaddingPolicy(double safetyFactor, long coverTime) {
+    this(safetyFactor, coverTime, System::nanoTime);
+  }
+
+  AdaptivePaddingPolicy(double safetyFactor, long coverTime, LongSupplier nanoClock) {
+    Assert.isTrue(safetyFactor >= 1D, "Safety factor must not less than 1");
+    Assert.isTrue(coverTime > 0, "Cover time must positive!");
+    this.safetyFactor = safetyFactor;
+    this.coverNanos = TimeUnit.MILLISECONDS.toNanos(coverTime);
+    this.nanoClock = nanoClock;
+  }
+
+  /**
+   * 采样获取速率: 两次添加之间消费的个数 = 期间添加的个数 + 剩余个数的减少量
+   */
+  @Override
+  public synchronized void beforePadding(AbstractBuffer buffer, long paddedUids) {
+    if (maxUpperRatio < 0) {
+      maxUpperRatio = (double) buffer.getPaddingUpperThreshold() / buffer.getBufferSize();
+    }
+
+    long now = nanoClock.getAsLong();
+    long remaining = buffer.getBufferSize() - buffer.paddingNums();
+    if (lastSampleNanos != 0) {
+      long consumed = (paddedUids - lastPaddedUids) + (lastRemaining - remaining);
+      long elapsed = now - lastSampleNanos;
+      if (elapsed > 0 && consumed >= 0) {
+        takeRate = ewma(takeRate, (double) consumed / elapsed);
+      }
+    }
+    lastSampleNanos = now;
+    lastRemaining = remaining;
+    lastPaddedUids = paddedUids;
+
+    adjustThresholds(buffer);
+  }
+
+  @Override
+  public int paddingNums(AbstractBuffer buffer) {
+    int paddingNums = buffer.paddingNums();
+    long remaining = buffer.getBufferSize() - paddingNums;
+    long required = buffer.getPaddingUpperThreshold() - remaining;
+    return (int) Math.max(1, Math.min(paddingNums, required));
+  }
+
+  @Override
+  public synchronized void recordProviderLatency(long latencyNanos) {
+    providerLatencyNanos = ewma(providerLatencyNanos, latencyNanos);
+  }
+
+  /**
+   * 根据获取速率和 provider 耗时调整水位
+   */
+  private void adjustThresholds(AbstractBuffer buffer) {
+    int maxUpperThreshold = (int) Math.round(buffer.getBufferSize() * maxUpperRatio);
+    if (takeRate < 0 || providerLatencyNanos < 0 || maxUpperThreshold < 2) {
+      return;
+    }
+
+    long under = (long) Math.ceil(takeRate * providerLatencyNanos * safetyFactor);
+    under = Math.max(1, Math.min(under, maxUpperThreshold - 1));
+    long upper = under + (long) Math.ceil(takeRate * coverNanos);
+    upper = Math.max(under + 1, Math.min(upper, maxUpperThreshold));
+
+    buffer.setPaddingThresholds((int) under, (int) upper);
+    if (LOGGER.isDebugEnabled()) {
+      LOGGER.debug("Adjust padding threshold, takeRate:{}/s, providerLatency:{}ns, "
+              + "under:{}, upper:{}", takeRate * TimeUnit.SECONDS.toNanos(1), providerLatencyNanos,
+          under, upper);
+    }
+  }
+
+  private static double ewma(double average, double sample) {
+    return average < 0 ? sample : EWMA_ALPHA * sample + (1 - EWMA_ALPHA) * average;
+  }
+}
@@ -0,0 +1,42 @@
+package com.black.opensdk.uidclient.buffer;
+
+/**
+ * 数组缓冲区, uid 保存在预分配的 long[] 中, put/take 不产生任何对象, 用于替代 {@link LinkedBuffer}.
+ *
+ * Unlike {@link MpmcRingBuffer}, bufferSize does not need to be a power of 2: the slots are rounded
+ * up to the next power of 2 and the count of buffered uids is bounded by bufferSize.
+ *
+ * @author chen
+ */
+public class ArrayBuffer extends MpmcRingBuffer {
+
+  /**
+   * init Buffer with bufferSize;
+   * @param bufferSize 队列长度;
+   */
+  public ArrayBuffer(int bufferSize) {
+    this(bufferSize, DEFAULT_UNDER_PADDING_PERCENT, DEFAULT_UPPER_PADDING_PERCENT);
+  }
+
+  /**
+   *  init Buffer with bufferSize,paddingUnderFactor,paddingUpperFactor;
+   *  paddingUnderFactor and paddingUpperFactor must be 0 - 100;
+   *  paddingUnderFactor must less than  paddingUpperFactor;
+   * @param bufferSize 队列长度
+   * @param paddingUnderFactor 队列低水位
+   * @param paddingUpperFactor 队列高水位
+   */
+  public ArrayBuffer(int bufferSize, int paddingUnderFactor, int paddingUpperFactor) {
+    super(bufferSize, ringSizeFor(bufferSize), paddingUnderFactor, paddingUpperFactor);
+  }
+
+  /**
+   * Round bufferSize up to a power of 2
+   */
+  private static int ringSizeFor(int bufferSize) {
+    if (bufferSize <= 1) {
+      return 1;
+    }
+    return Integer.highestOneBit(bufferSize - 1) << 1;
+  }
+}
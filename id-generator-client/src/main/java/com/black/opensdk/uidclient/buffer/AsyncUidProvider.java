@@ -0,0 +1,22 @@
+package com.black.opensdk.uidclient.buffer;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 异步 uid provider, {@link BufferPaddingExecutor} 发起请求后不阻塞线程, 在请求完成时添加uid.
+ *
+ * Existing blocking providers can be adapted by {@link BlockingUidProviderAdapter}.
+ *
+ * @author chen
+ */
+@FunctionalInterface
+public interface AsyncUidProvider {
+
+  /**
+   * Provides UID batch asynchronously
+   *
+   * @param count 批量获取的数量
+   * @return 完成时返回uid数组, 长度可以小于count
+   */
+  CompletableFuture<long[]> provideAsync(int count);
+}
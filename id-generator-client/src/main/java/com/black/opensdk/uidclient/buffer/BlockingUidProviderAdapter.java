@@ -0,0 +1,34 @@
+package com.black.opensdk.uidclient.buffer;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import org.springframework.util.Assert;
+
+/**
+ * 将阻塞的 {@link UidProvider} 适配为 {@link AsyncUidProvider}, 在指定线程池中调用
+ * {@link UidProvider#provideArray(int)}.
+ *
+ * @author chen
+ */
+public class BlockingUidProviderAdapter implements AsyncUidProvider {
+
+  private final UidProvider uidProvider;
+
+  private final Executor executor;
+
+  /**
+   * @param uidProvider 阻塞的 provider
+   * @param executor 执行阻塞调用的线程池
+   */
+  public BlockingUidProviderAdapter(UidProvider uidProvider, Executor executor) {
+    Assert.notNull(uidProvider, "Provider Can Not Be Null!");
+    Assert.notNull(executor, "Executor Can Not Be Null!");
+    this.uidProvider = uidProvider;
+    this.executor = executor;
+  }
+
+  @Override
+  public CompletableFuture<long[]> provideAsync(int count) {
+    return CompletableFuture.supplyAsync(() -> uidProvider.provideArray(count), executor);
+  }
+}
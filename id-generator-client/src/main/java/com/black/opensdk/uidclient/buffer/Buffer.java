@@ -1,5 +1,7 @@
 package com.black.opensdk.uidclient.buffer;
 
+import java.util.concurrent.TimeUnit;
+
 /**
  * @Author: chen
  * @Description:
@@ -13,11 +15,45 @@ public interface Buffer {
    */
   boolean put(long uid);
 
+  /**
+   * 批量添加, 一次发布末尾标志.
+   * 缓冲区放不下时只添加前面的部分, 并对第一个未添加的uid触发一次添加拒绝策略.
+   *
+   * @return 实际添加的个数
+   */
+  int putBatch(long[] uids, int offset, int length);
+
+  /**
+   * 批量添加号段
+   *
+   * @return 实际添加的个数, 即号段中前n个uid被添加
+   */
+  int putBatch(LongRange range);
+
   /**
    * 获取
    */
   long take();
 
+  /**
+   * 获取, 缓冲区为空时挂起等待添加线程补充, 最多等待timeout.
+   * 超时后触发获取拒绝策略.
+   *
+   * @param timeout 最长等待时间
+   * @param unit 时间单位
+   */
+  long take(long timeout, TimeUnit unit);
+
+  /**
+   * 批量获取, 一次移动读取位置并拷贝至dest.
+   * 缓冲区数量不足时只返回已有的uid, 不会触发获取拒绝策略.
+   *
+   * @param dest 目标数组, 从下标0开始写入
+   * @param count 需要获取的个数, 不能超过dest的长度
+   * @return 实际获取的个数
+   */
+  int take(long[] dest, int count);
+
   /**
    * 需要添加的个数
    * @return 返回需添加的个数
@@ -0,0 +1,24 @@
+package com.black.opensdk.uidclient.buffer;
+
+/**
+ * 缓冲区日志, 记录每个位置添加的uid和获取进度, 用于崩溃后恢复未被获取的uid.
+ *
+ * Both methods are called on the put/take path of {@link MpmcRingBuffer}, implementations must not
+ * block except when the take progress has to be made durable.
+ *
+ * @author chen
+ */
+public interface BufferJournal {
+
+  /**
+   * uid 已写入 sequence 位置, 在该位置对消费者可见之前调用
+   */
+  void onPut(long sequence, long uid);
+
+  /**
+   * [0, nextSequence) 的位置都已被获取(抢占), 在uid返回给调用方之前调用
+   *
+   * @param nextSequence sequence after the last taken one
+   */
+  void onTake(long nextSequence);
+}
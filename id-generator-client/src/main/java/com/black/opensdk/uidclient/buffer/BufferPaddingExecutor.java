@@ -1,15 +1,23 @@
 
 package com.black.opensdk.uidclient.buffer;
 
+import com.black.opensdk.uidclient.metrics.UidMetrics;
 import com.black.opensdk.uidclient.util.NamingThreadFactory;
-import java.util.List;
-import java.util.concurrent.ArrayBlockingQueue;
+import com.black.opensdk.uidclient.util.RateLimitedLogger;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.util.Assert;
@@ -24,8 +32,16 @@ public class BufferPaddingExecutor {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(RingBuffer.class);
 
+  /**
+   * 每次添加的开始/结束日志限流, 低水位频繁触发添加时不刷屏
+   */
+  private static final RateLimitedLogger START_PADDING_LOGGER = new RateLimitedLogger(LOGGER);
+  private static final RateLimitedLogger END_PADDING_LOGGER = new RateLimitedLogger(LOGGER);
+  private static final RateLimitedLogger REJECT_PADDING_LOGGER = new RateLimitedLogger(LOGGER);
+
   private static final String WORKER_NAME = "RingBuffer-Worker";
   private static final String SCHEDULE_NAME = "RingBuffer-Schedule";
+  private static final String FETCHER_NAME = "RingBuffer-Fetcher";
 
   /**
    * 默认 3 分种添加一次.
@@ -44,19 +60,89 @@ public class BufferPaddingExecutor {
   private final UidProvider uidProvider;
 
   /**
-   * Padding immediately by the thread pool
+   * Padding immediately by the worker thread, started on the first request and parked when idle
    */
-  private final ExecutorService bufferPadExecutors;
+  private final AtomicReference<Thread> paddingWorker = new AtomicReference<>();
+  private volatile boolean stopped;
+
+  /**
+   * 是否正在执行 {@link #paddingBuffer()}, 共享添加线程池执行时用于等待添加结束
+   */
+  private volatile boolean padding;
   /**
    * Padding schedule thread
    */
   private final ScheduledExecutorService bufferPadSchedule;
 
+  /**
+   * 共享添加线程池, 设置后不创建自己的添加线程和定时线程
+   */
+  private final SharedPaddingScheduler sharedScheduler;
+  private final boolean usingSchedule;
+
+  /**
+   * Fetch from provider concurrently, only when maxInflightRequests > 1
+   */
+  private ExecutorService bufferFetchExecutors;
+
+  /**
+   * 同时向 provider 获取的最大请求数
+   */
+  private int maxInflightRequests = 1;
+
   /**
    * Schedule interval Unit as seconds
    */
   private long scheduleInterval = DEFAULT_SCHEDULE_INTERVAL;
 
+  /**
+   * 添加策略, null 表示按固定水位添加
+   */
+  private PaddingPolicy paddingPolicy;
+
+  /**
+   * 累计已添加的uid个数
+   */
+  private final AtomicLong paddedUids = new AtomicLong(0);
+
+  /**
+   * 异步 provider, 设置后异步添加不再阻塞添加线程
+   */
+  private AsyncUidProvider asyncUidProvider;
+
+  /**
+   * 异步添加中未完成的请求数和uid个数
+   */
+  private final AtomicInteger inflightRequests = new AtomicInteger(0);
+  private final AtomicLong inflightUids = new AtomicLong(0);
+
+  /**
+   * 待执行的发起请求次数. 只有从0开始计数的线程发起请求, 在其发起期间完成的请求只计数不递归,
+   * 避免已完成的 future 在当前线程内回调导致栈溢出
+   */
+  private final AtomicInteger pumpRequests = new AtomicInteger(0);
+
+  /**
+   * 运行指标, null 表示不记录
+   */
+  private UidMetrics metrics;
+
+  /**
+   * 是否已请求添加. 边沿触发: 只有 false -> true 的 CAS 会唤醒添加线程, 之后的请求只读一次该标志,
+   * 添加线程开始添加前清除
+   */
+  private final AtomicBoolean refillRequested = new AtomicBoolean(false);
+
+  /**
+   * 被拒绝的添加请求数
+   */
+  private final AtomicLong rejectedPaddings = new AtomicLong(0);
+
+  /**
+   * 获取速率, 用于估算耗尽时间
+   */
+  private final TakeRateEstimator takeRate = new TakeRateEstimator();
+
 
   /**
    * Constructor with {@link AbstractBuffer} and {@link UidProvider}, default use schedule
@@ -80,11 +166,8 @@ public class BufferPaddingExecutor {
     this.running = new AtomicBoolean(false);
     this.abstractBuffer = abstractBuffer;
     this.uidProvider = uidProvider;
-
-    // initialize thread pool
-    bufferPadExecutors = new ThreadPoolExecutor(1, 1, 100, TimeUnit.SECONDS,
-        new ArrayBlockingQueue <Runnable>(1), new NamingThreadFactory(WORKER_NAME),
-        new ThreadPoolExecutor.DiscardPolicy());
+    this.sharedScheduler = null;
+    this.usingSchedule = usingSchedule;
 
     // initialize schedule thread
     if (usingSchedule) {
@@ -95,13 +178,34 @@ public class BufferPaddingExecutor {
     }
   }
 
+  /**
+   * Constructor with {@link SharedPaddingScheduler}, padding runs in the shared workers
+   *
+   * @param abstractBuffer {@link AbstractBuffer}
+   * @param uidProvider {@link UidProvider}
+   * @param sharedScheduler {@link SharedPaddingScheduler}
+   */
+  public BufferPaddingExecutor(AbstractBuffer abstractBuffer, UidProvider uidProvider,
+      SharedPaddingScheduler sharedScheduler, boolean usingSchedule) {
+    Assert.notNull(sharedScheduler, "Shared Scheduler Can Not Be Null!");
+    this.running = new AtomicBoolean(false);
+    this.abstractBuffer = abstractBuffer;
+    this.uidProvider = uidProvider;
+    this.sharedScheduler = sharedScheduler;
+    this.usingSchedule = usingSchedule;
+    this.bufferPadSchedule = null;
+  }
+
   /**
    * Start executors such as schedule
    */
   public void start() {
+    if (sharedScheduler != null && usingSchedule) {
+      sharedScheduler.register(this, scheduleInterval);
+    }
     if (bufferPadSchedule != null) {
       bufferPadSchedule
-          .scheduleWithFixedDelay(this::paddingBuffer, scheduleInterval, scheduleInterval,
+          .scheduleWithFixedDelay(this::schedulePadding, scheduleInterval, scheduleInterval,
               TimeUnit.SECONDS);
     }
   }
@@ -110,15 +214,62 @@ public class BufferPaddingExecutor {
    * Shutdown executors
    */
   public void shutdown() {
-    if (!bufferPadExecutors.isShutdown()) {
-      bufferPadExecutors.shutdownNow();
+    stopped = true;
+    if (sharedScheduler != null) {
+      sharedScheduler.unregister(this);
+    }
+
+    Thread worker = paddingWorker.get();
+    if (worker != null) {
+      worker.interrupt();
     }
 
     if (bufferPadSchedule != null && !bufferPadSchedule.isShutdown()) {
       bufferPadSchedule.shutdownNow();
     }
+
+    if (bufferFetchExecutors != null && !bufferFetchExecutors.isShutdown()) {
+      bufferFetchExecutors.shutdownNow();
+    }
+  }
+  /**
+   * 等待 {@link #shutdown()} 后添加结束: 添加线程, 定时线程池, 批量获取线程池, 共享线程池中正在执行的添加
+   * 以及未完成的异步请求. 返回 true 后不会再有uid被添加至缓冲区.
+   *
+   * @return false if padding is still running after timeout
+   */
+  public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+    long deadline = System.nanoTime() + unit.toNanos(timeout);
+    Thread worker = paddingWorker.get();
+    if (worker != null) {
+      TimeUnit.NANOSECONDS.timedJoin(worker, Math.max(1L, deadline - System.nanoTime()));
+      if (worker.isAlive()) {
+        return false;
+      }
+    }
+    if (bufferPadSchedule != null && !bufferPadSchedule
+        .awaitTermination(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+      return false;
+    }
+    if (bufferFetchExecutors != null && !bufferFetchExecutors
+        .awaitTermination(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+      return false;
+    }
+    // padding by the shared scheduler and async completions
+    while (padding || inflightRequests.get() > 0) {
+      long remaining = deadline - System.nanoTime();
+      if (remaining <= 0) {
+        return false;
+      }
+      LockSupport.parkNanos(this, Math.min(remaining, TimeUnit.MILLISECONDS.toNanos(1)));
+      if (Thread.interrupted()) {
+        throw new InterruptedException();
+      }
+    }
+    return true;
   }
 
+
   /**
    * Whether is padding
    */
@@ -127,10 +278,223 @@ public class BufferPaddingExecutor {
   }
 
   /**
-   * Padding buffer in the thread pool
+   * Padding buffer in the worker thread. 已请求但未开始的添加会合并本次请求, 不会静默丢弃.
+   * Buffers call this on every take below the low watermark, after the first call it only costs
+   * a volatile read until the worker starts padding.
+   *
+   * @return false if the request is rejected (the executor is shut down), the caller should not
+   * expect the buffer to be padded
+   */
+  public boolean asyncPadding() {
+    if (stopped) {
+      // not counted as rejected, e.g. the buffer is drained into a snapshot after shutdown
+      return false;
+    }
+    if (refillRequested.get() || !refillRequested.compareAndSet(false, true)) {
+      return true;
+    }
+    if (sharedScheduler != null) {
+      if (sharedScheduler.requestPadding(this)) {
+        return true;
+      }
+      // not queued, let the next request try again
+      refillRequested.set(false);
+      return rejectPadding();
+    }
+    LockSupport.unpark(paddingWorker());
+    return true;
+  }
+
+  /**
+   * 获取添加线程, 第一次请求时启动
+   */
+  private Thread paddingWorker() {
+    Thread worker = paddingWorker.get();
+    if (worker == null) {
+      Thread created = new NamingThreadFactory(WORKER_NAME).newThread(this::runWorker);
+      if (paddingWorker.compareAndSet(null, created)) {
+        created.start();
+        worker = created;
+      } else {
+        worker = paddingWorker.get();
+      }
+    }
+    return worker;
+  }
+
+  /**
+   * 添加线程: 未请求添加时 park, 被 unpark 后清除请求标志并添加
+   */
+  private void runWorker() {
+    try {
+      while (!stopped) {
+        if (!refillRequested.getAndSet(false)) {
+          LockSupport.park(this);
+          // clear an interrupt not caused by shutdown, or park would return immediately
+          Thread.interrupted();
+          continue;
+        }
+        runPadding();
+      }
+    } finally {
+      // a dying worker must not stay referenced, the next request starts a new one
+      paddingWorker.compareAndSet(Thread.currentThread(), null);
+      if (!stopped && refillRequested.get()) {
+        LockSupport.unpark(paddingWorker());
+      }
+    }
+  }
+
+  /**
+   * 执行已请求的添加, 由添加线程或 {@link SharedPaddingScheduler} 的线程调用
+   */
+  void runRequestedPadding() {
+    refillRequested.set(false);
+    runPadding();
+  }
+
+  private void runPadding() {
+    try {
+      schedulePadding();
+    } catch (Throwable e) {
+      // keep the worker alive (dedicated or shared), an Error would otherwise end its loop
+      LOGGER.error("Padding Buffer Error!", e);
+    }
+  }
+
+  private boolean rejectPadding() {
+    rejectedPaddings.incrementAndGet();
+    if (metrics != null) {
+      metrics.recordRejectedPadding();
+    }
+    REJECT_PADDING_LOGGER.warn("Rejected padding request {}", abstractBuffer);
+    return false;
+  }
+
+  /**
+   * 缓冲区空闲比例
+   */
+  double emptyRatio() {
+    return (double) abstractBuffer.paddingNums() / abstractBuffer.getBufferSize();
+  }
+
+  /**
+   * 按最近的获取速率估算缓冲区耗尽时间, {@link SharedPaddingScheduler} 优先添加耗尽时间最短的缓冲区
+   *
+   * @return nanos until the buffer is empty, Long.MAX_VALUE if there is no take recently
    */
-  public void asyncPadding() {
-    bufferPadExecutors.submit(this::paddingBuffer);
+  long timeToEmptyNanos() {
+    long size = sampleTakeRate();
+    return takeRate.timeToEmptyNanos(size);
+  }
+
+  /**
+   * @return count of uids in the buffer
+   */
+  private long sampleTakeRate() {
+    long size = Math.max(0, abstractBuffer.getBufferSize() - abstractBuffer.paddingNums());
+    takeRate.sample(paddedUids.get(), size);
+    return size;
+  }
+
+  /**
+   * Padding buffer by {@link AsyncUidProvider} if it is set, otherwise by {@link UidProvider}
+   */
+  void schedulePadding() {
+    sampleTakeRate();
+    if (asyncUidProvider != null) {
+      nonBlockingPadding();
+    } else {
+      paddingBuffer();
+    }
+  }
+
+  /**
+   * Padding buffer by {@link AsyncUidProvider}, only sends requests and returns immediately
+   */
+  private void nonBlockingPadding() {
+    try {
+      abstractBuffer.beforePadding();
+      if (paddingPolicy != null) {
+        paddingPolicy.beforePadding(abstractBuffer, paddedUids.get());
+      }
+      pumpAsyncRequests();
+    } catch (Exception e) {
+      if (metrics != null) {
+        metrics.recordPaddingError();
+      }
+      LOGGER.error("Padding Buffer Error!", e);
+    }
+  }
+
+  /**
+   * 在未完成请求数不超过 maxInflightRequests 的前提下, 为缓冲区缺少的uid发起异步请求.
+   * 每个请求完成后添加uid, 并继续发起请求直至达到高水位. 请求没有添加任何uid时不再继续.
+   */
+  private void pumpAsyncRequests() {
+    if (pumpRequests.getAndIncrement() != 0) {
+      // the pumping thread, possibly this one, pumps again
+      return;
+    }
+    int missed = 1;
+    do {
+      sendAsyncRequests();
+      missed = pumpRequests.addAndGet(-missed);
+    } while (missed != 0);
+  }
+
+  private void sendAsyncRequests() {
+    for (; ; ) {
+      int inflight = inflightRequests.get();
+      if (stopped || inflight >= maxInflightRequests || abstractBuffer.isNeedPadding()) {
+        return;
+      }
+      int paddingNums = paddingPolicy != null ? paddingPolicy.paddingNums(abstractBuffer)
+          : abstractBuffer.paddingNums();
+      long count = paddingNums - inflightUids.get();
+      if (count <= 0) {
+        return;
+      }
+      if (!inflightRequests.compareAndSet(inflight, inflight + 1)) {
+        continue;
+      }
+
+      int size = (int) Math.max(1, Math.min(count,
+          ((long) paddingNums + maxInflightRequests - 1) / maxInflightRequests));
+      inflightUids.addAndGet(size);
+      long startNanos = System.nanoTime();
+      CompletableFuture<long[]> future;
+      try {
+        future = asyncUidProvider.provideAsync(size);
+      } catch (RuntimeException e) {
+        future = new CompletableFuture<>();
+        future.completeExceptionally(e);
+      }
+      future.whenComplete((uids, error) -> {
+        int accepted = 0;
+        try {
+          recordProviderLatency(System.nanoTime() - startNanos);
+          if (error == null && uids != null) {
+            accepted = putUids(new PaddingBatch(uids, null));
+          }
+        } finally {
+          inflightUids.addAndGet(-size);
+          inflightRequests.decrementAndGet();
+        }
+        if (error != null) {
+          if (metrics != null) {
+            metrics.recordPaddingError();
+          }
+          LOGGER.error("Padding Buffer Error!", error);
+        } else if (accepted > 0) {
+          pumpAsyncRequests();
+        }
+      });
+      if (future.isDone()) {
+        // completed inline, its callback has asked to pump again if it made progress
+        return;
+      }
+    }
   }
 
   /**
@@ -138,34 +502,168 @@ public class BufferPaddingExecutor {
    */
   public synchronized void  paddingBuffer() {
 
+    // set before checking stopped, see awaitTermination
+    padding = true;
+    if (stopped) {
+      padding = false;
+      return;
+    }
+    long startNanos = System.nanoTime();
     try {
 
-      LOGGER.info("Ready to padding buffer  {}", abstractBuffer);
+      START_PADDING_LOGGER.info("Ready to padding buffer  {}", abstractBuffer);
       boolean isFullRingBuffer = false;
+      abstractBuffer.beforePadding();
+      if (paddingPolicy != null) {
+        paddingPolicy.beforePadding(abstractBuffer, paddedUids.get());
+      }
 
-      while (!isFullRingBuffer) {
-        int count = abstractBuffer.paddingNums();
+      while (!isFullRingBuffer && !stopped) {
+        int count = paddingPolicy != null ? paddingPolicy.paddingNums(abstractBuffer)
+            : abstractBuffer.paddingNums();
         if (LOGGER.isDebugEnabled()) {
           LOGGER.debug("Padding Count is {}", count);
         }
-        List <Long> uidList = uidProvider.provide(count);
-        for (Long uid : uidList) {
-          isFullRingBuffer = !abstractBuffer.put(uid);
-          if (isFullRingBuffer) {
-            break;
-          }
+        if (count <= 0) {
+          break;
+        }
+        if (maxInflightRequests > 1) {
+          isFullRingBuffer = !pipelinedPadding(count);
+        } else {
+          isFullRingBuffer = !putBatch(fetchBatch(count));
         }
         if (abstractBuffer.isNeedPadding()) {
           break;
         }
       }
 
-      LOGGER.info("End to padding buffer {}", abstractBuffer);
+      END_PADDING_LOGGER.info("End to padding buffer {}", abstractBuffer);
     } catch (Exception e) {
-      LOGGER.error("Padding Buffer Error!");
+      if (metrics != null) {
+        metrics.recordPaddingError();
+      }
+      LOGGER.error("Padding Buffer Error!", e);
+    } finally {
+      padding = false;
+      if (metrics != null) {
+        metrics.recordPadding(System.nanoTime() - startNanos);
+      }
+    }
+  }
+
+  /**
+   * 将count拆分为多个批次, 最多 maxInflightRequests 个请求同时向 provider 获取, 按发起顺序添加.
+   * 每个请求的个数不超过扣除未完成请求后的剩余容量, 完成的批次不会因缓冲区已满被拒绝而浪费uid.
+   *
+   * @return false if buffer can not hold all the batches
+   */
+  private boolean pipelinedPadding(int count) throws InterruptedException {
+    int batchSize = Math.max(1, (count + maxInflightRequests - 1) / maxInflightRequests);
+    Deque<Future<PaddingBatch>> inflight = new ArrayDeque<>(maxInflightRequests);
+    int[] sizes = new int[maxInflightRequests];
+    int issued = 0;
+    int completed = 0;
+    long requested = 0;
+    long pendingUids = 0;
+    boolean isFull = false;
+    Exception error = null;
+
+    for (; ; ) {
+      // stop requesting once the buffer is full or a request failed, but wait for the inflight ones
+      while (!isFull && error == null && inflight.size() < maxInflightRequests
+          && requested < count) {
+        long capacity = abstractBuffer.paddingNums() - pendingUids;
+        int size = (int) Math.min(Math.min(batchSize, count - requested), capacity);
+        if (size <= 0) {
+          break;
+        }
+        inflight.add(bufferFetchExecutors.submit(() -> fetchBatch(size)));
+        sizes[issued++ % maxInflightRequests] = size;
+        requested += size;
+        pendingUids += size;
+      }
+
+      Future<PaddingBatch> future = inflight.poll();
+      if (future == null) {
+        break;
+      }
+      try {
+        isFull |= !putBatch(future.get());
+      } catch (ExecutionException e) {
+        error = e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+      }
+      pendingUids -= sizes[completed++ % maxInflightRequests];
+    }
+
+    if (error != null) {
+      throw new IllegalStateException("Fetch uids from provider error", error);
+    }
+    return !isFull && requested == count;
+  }
+
+  /**
+   * Fetch one batch from provider, segment providers are fetched as a range
+   */
+  private PaddingBatch fetchBatch(int count) {
+    long startNanos = System.nanoTime();
+    PaddingBatch batch;
+    if (uidProvider instanceof SegmentUidProvider) {
+      batch = new PaddingBatch(null, ((SegmentUidProvider) uidProvider).provideSegment(count));
+    } else {
+      batch = new PaddingBatch(uidProvider.provideArray(count), null);
+    }
+    recordProviderLatency(System.nanoTime() - startNanos);
+    return batch;
+  }
+
+  private void recordProviderLatency(long nanos) {
+    if (paddingPolicy != null) {
+      paddingPolicy.recordProviderLatency(nanos);
+    }
+    if (metrics != null) {
+      metrics.recordProviderLatency(nanos);
     }
   }
 
+  /**
+   * Put one batch into buffer
+   *
+   * @return false if buffer can not hold the whole batch
+   */
+  private boolean putBatch(PaddingBatch batch) {
+    return putUids(batch) == batch.length();
+  }
+
+  /**
+   * Put one batch into buffer
+   *
+   * @return count of uids accepted by buffer
+   */
+  private int putUids(PaddingBatch batch) {
+    int accepted = batch.range != null ? abstractBuffer.putBatch(batch.range)
+        : abstractBuffer.putBatch(batch.uids, 0, batch.uids.length);
+    paddedUids.addAndGet(accepted);
+    if (metrics != null) {
+      metrics.recordPaddedUids(accepted);
+    }
+    abstractBuffer.signalTakeWaiters();
+    return accepted;
+  }
+
+  /**
+   * Getters
+   */
+  public long getRejectedPaddingCount() {
+    return rejectedPaddings.get();
+  }
+
+  /**
+   * 最近的获取速率, 每秒uid个数
+   */
+  public double getTakeRate() {
+    return takeRate.ratePerSecond();
+  }
+
   /**
    * Setters
    */
@@ -174,4 +672,51 @@ public class BufferPaddingExecutor {
     this.scheduleInterval = scheduleInterval;
   }
 
+  public void setPaddingPolicy(PaddingPolicy paddingPolicy) {
+    this.paddingPolicy = paddingPolicy;
+  }
+
+  public void setMetrics(UidMetrics metrics) {
+    this.metrics = metrics;
+  }
+
+  /**
+   * 设置异步 provider, 之后异步添加(低水位触发和定时添加)通过它发起请求, 不阻塞添加线程.
+   * {@link #paddingBuffer()} 仍使用阻塞的 {@link UidProvider}.
+   */
+  public void setAsyncUidProvider(AsyncUidProvider asyncUidProvider) {
+    this.asyncUidProvider = asyncUidProvider;
+  }
+
+  /**
+   * 同时向 provider 获取的最大请求数, 大于1时使用独立的获取线程池. Must be set before padding
+   */
+  public synchronized void setMaxInflightRequests(int maxInflightRequests) {
+    Assert.isTrue(maxInflightRequests > 0, "Max inflight requests must positive!");
+    Assert.isTrue(bufferFetchExecutors == null, "Max inflight requests can only be set once!");
+    this.maxInflightRequests = maxInflightRequests;
+    if (maxInflightRequests > 1) {
+      bufferFetchExecutors = Executors
+          .newFixedThreadPool(maxInflightRequests, new NamingThreadFactory(FETCHER_NAME));
+    }
+  }
+
+  /**
+   * 一批从 provider 获取的uid, 数组或号段
+   */
+  private static final class PaddingBatch {
+
+    private final long[] uids;
+    private final LongRange range;
+
+    PaddingBatch(long[] uids, LongRange range) {
+      this.uids = uids;
+      this.range = range;
+    }
+
+    int length() {
+      return range != null ? range.getLength() : uids.length;
+    }
+  }
+
 }
@@ -0,0 +1,292 @@
+package com.black.opensdk.uidclient.buffer;
+
+import java.util.concurrent.atomic.AtomicReference;
+import org.springframework.util.Assert;
+
+/**
+ * 双缓冲区, 消费者主要读取 active, 添加线程写入 standby, 大部分时间两者访问不同的队列.
+ *
+ * When the active buffer is drained, consumers swap active and standby with a single CAS, and the
+ * drained buffer becomes the new standby to be filled by the padding thread. Each half holds up
+ * to bufferSize uids, so the client may hold up to 2 * bufferSize uids. Thresholds apply to the
+ * standby: padding fills it until it reaches the upper threshold, and is triggered again when the
+ * active one falls under the lower threshold while the standby is not filled yet.
+ *
+ * A put marks the halves as being written with a CAS on the same reference as the swap, so the
+ * halves are never swapped during a put. The four (order, writing) states are preallocated, a put
+ * or a swap allocates nothing. Consumers and padding may still meet on one half: a consumer
+ * finding the active drained during a put takes from the standby directly instead of waiting, and
+ * a consumer holding a stale state may claim from the half that has just become the standby. Both
+ * are safe since each half is a multi-producer multi-consumer {@link MpmcRingBuffer}.
+ *
+ * @author chen
+ */
+public class DoubleBuffer extends AbstractBuffer {
+
+  /**
+   * 当前的 active/standby 组合, 交换时整体替换
+   */
+  private final AtomicReference<Halves> halves;
+
+  /**
+   * @param bufferSize 每一半最多缓存的uid个数
+   */
+  public DoubleBuffer(int bufferSize) {
+    this(bufferSize, DEFAULT_UNDER_PADDING_PERCENT, DEFAULT_UPPER_PADDING_PERCENT);
+  }
+
+  /**
+   * @param bufferSize max count of uids held by each half, must be positive
+   * @param paddingUnderFactor percent in (0 - 100), padding buffer will be triggered when the
+   * rest uids of the active half less than threshold
+   * @param paddingUpperFactor percent in (0 - 100) and paddingUpperFactor > paddingUnderFactor
+   */
+  public DoubleBuffer(int bufferSize, int paddingUnderFactor, int paddingUpperFactor) {
+
+    Assert.isTrue(bufferSize > 0L, "DoubleBuffer size must be positive");
+
+    ArrayBuffer first = newHalf(bufferSize, paddingUnderFactor, paddingUpperFactor);
+    ArrayBuffer second = newHalf(bufferSize, paddingUnderFactor, paddingUpperFactor);
+
+    this.bufferSize = bufferSize;
+    Halves firstActive = new Halves(first, second, false);
+    Halves secondActive = new Halves(second, first, false);
+    firstActive.link(secondActive);
+    secondActive.link(firstActive);
+    this.halves = new AtomicReference<>(firstActive);
+    this.paddingUnderThreshold = first.getPaddingUnderThreshold();
+    this.paddingUpperThreshold = first.getPaddingUpperThreshold();
+  }
+
+  private static ArrayBuffer newHalf(int bufferSize, int paddingUnderFactor,
+      int paddingUpperFactor) {
+    ArrayBuffer half = new ArrayBuffer(bufferSize, paddingUnderFactor, paddingUpperFactor);
+    // rejection is applied by DoubleBuffer itself
+    half.setRejectedPutHandler((buffer, uid) -> {
+    });
+    return half;
+  }
+
+  /**
+   * 添加uid至 standby.
+   */
+  @Override
+  public synchronized boolean put(long uid) {
+    boolean accepted;
+    try {
+      accepted = beginPut().put(uid);
+    } finally {
+      endPut();
+    }
+    if (accepted) {
+      return true;
+    }
+    rejectedPutHandler.rejectPutBuffer(this, uid);
+    return false;
+  }
+
+  @Override
+  public synchronized int putBatch(long[] uids, int offset, int length) {
+    int count;
+    try {
+      count = beginPut().putBatch(uids, offset, length);
+    } finally {
+      endPut();
+    }
+    if (count < length) {
+      rejectedPutHandler.rejectPutBuffer(this, uids[offset + count]);
+    }
+    return count;
+  }
+
+  @Override
+  public synchronized int putBatch(LongRange range) {
+    int count;
+    try {
+      count = beginPut().putBatch(range);
+    } finally {
+      endPut();
+    }
+    if (count < range.getLength()) {
+      rejectedPutHandler.rejectPutBuffer(this, range.get(count));
+    }
+    return count;
+  }
+
+  /**
+   * 标记正在写入 standby, 与交换 CAS 同一引用, 写入期间不会交换. 只在持有锁时调用
+   *
+   * @return the standby half to write
+   */
+  private MpmcRingBuffer beginPut() {
+    for (; ; ) {
+      Halves current = halves.get();
+      // only a concurrent swap makes the CAS fail
+      if (halves.compareAndSet(current, current.writingState)) {
+        return current.standby;
+      }
+    }
+  }
+
+  /**
+   * 写入结束, 写入期间消费者不会替换 halves
+   */
+  private void endPut() {
+    halves.set(halves.get().idleState);
+  }
+
+  /**
+   * 获取uid, active 取完后与 standby 交换.
+   *
+   * @return UID, or {@link #NO_UID} if the buffer is empty
+   */
+  @Override
+  protected long poll() {
+    for (; ; ) {
+      Halves current = halves.get();
+      long sequence = current.active.claimTake();
+      if (sequence != MpmcRingBuffer.EMPTY_SEQUENCE) {
+        long uid = current.active.consume(sequence);
+        // 判断是否达到低水位
+        if (current.active.size() < paddingUnderThreshold
+            && current.standby.size() < paddingUpperThreshold) {
+          bufferPaddingExecutor.asyncPadding();
+        }
+        return uid;
+      }
+      if (current.writing) {
+        // the standby is being written, take the published uids from it instead of waiting
+        sequence = current.standby.claimTake();
+        if (sequence != MpmcRingBuffer.EMPTY_SEQUENCE) {
+          return current.standby.consume(sequence);
+        }
+        break;
+      }
+      if (!swap(current)) {
+        break;
+      }
+    }
+
+    return NO_UID;
+  }
+
+  @Override
+  public int take(long[] dest, int count) {
+    int limit = Math.min(count, dest.length);
+    int taken = 0;
+    for (; ; ) {
+      Halves current = halves.get();
+      taken += current.active.drainTo(dest, taken, limit - taken);
+      if (taken < limit && current.writing) {
+        // the standby is being written, take the published uids from it instead of waiting
+        taken += current.standby.drainTo(dest, taken, limit - taken);
+        return taken;
+      }
+      if (taken == limit) {
+        // 判断是否达到低水位
+        if (current.active.size() < paddingUnderThreshold
+            && current.standby.size() < paddingUpperThreshold) {
+          bufferPaddingExecutor.asyncPadding();
+        }
+        return taken;
+      }
+      if (!swap(current)) {
+        bufferPaddingExecutor.asyncPadding();
+        return taken;
+      }
+    }
+  }
+
+  /**
+   * active 已取完, 交换 active 和 standby, 并触发添加新的 standby. 只在未写入时调用
+   *
+   * @return false if the standby is empty too
+   */
+  private boolean swap(Halves current) {
+    if (current.standby.size() == 0) {
+      // another consumer may have swapped already
+      return halves.get() != current;
+    }
+    if (halves.compareAndSet(current, current.swappedState)) {
+      bufferPaddingExecutor.asyncPadding();
+    }
+    return true;
+  }
+
+  /**
+   * 获取需要添加的UID数量.
+   *
+   * @return count
+   */
+  @Override
+  public int paddingNums() {
+    return (int) Math.max(0, bufferSize - halves.get().standby.size());
+  }
+
+  /**
+   * 判断 standby 是否达到高水位上限.
+   *
+   * @return boolean
+   */
+  @Override
+  public boolean isNeedPadding() {
+    return halves.get().standby.size() >= paddingUpperThreshold;
+  }
+
+  /**
+   * Count of uids which have been put but not taken yet
+   */
+  public long size() {
+    Halves current = halves.get();
+    return current.active.size() + current.standby.size();
+  }
+
+  @Override
+  public String toString() {
+    Halves current = halves.get();
+    StringBuilder builder = new StringBuilder();
+    builder.append("DoubleBuffer [bufferSize=").append(bufferSize)
+        .append(", active=").append(current.active)
+        .append(", standby=").append(current.standby)
+        .append(", paddingUnderThreshold=").append(paddingUnderThreshold)
+        .append(", paddingUpperThreshold=").append(paddingUpperThreshold).append("]");
+
+    return builder.toString();
+  }
+
+  /**
+   * active 供消费者读取, standby 供添加线程写入, writing 表示添加线程正在写入 standby.
+   * 四种状态预先创建, 通过 link 互相引用, 状态切换不分配对象
+   */
+  private static final class Halves {
+
+    private final MpmcRingBuffer active;
+    private final MpmcRingBuffer standby;
+    private final boolean writing;
+
+    /**
+     * 同一顺序的写入中/未写入状态, 以及交换后的未写入状态
+     */
+    private Halves writingState;
+    private Halves idleState;
+    private Halves swappedState;
+
+    Halves(MpmcRingBuffer active, MpmcRingBuffer standby, boolean writing) {
+      this.active = active;
+      this.standby = standby;
+      this.writing = writing;
+    }
+
+    /**
+     * 由未写入状态调用, 创建对应的写入中状态并关联交换后的状态
+     */
+    void link(Halves swapped) {
+      Halves writingHalves = new Halves(active, standby, true);
+      writingHalves.writingState = writingHalves;
+      writingHalves.idleState = this;
+      this.writingState = writingHalves;
+      this.idleState = this;
+      this.swappedState = swapped;
+    }
+  }
+}
@@ -0,0 +1,270 @@
+package com.black.opensdk.uidclient.buffer;
+
+import java.util.concurrent.atomic.AtomicReference;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.Assert;
+
+/**
+ * 弹性缓冲区, 根据持续的占用情况在线扩容(翻倍)或缩容(减半).
+ *
+ * Uids are held by an active {@link MpmcRingBuffer}. Resizing puts a new ring in place and retires
+ * the old one; consumers drain the retired ring before the active one. Puts and resizing hold the
+ * buffer lock and puts read the active ring inside it, so no uid is put into a retired ring (with
+ * synchronous, pipelined or async padding alike), no uid is lost or taken twice and take() never
+ * waits for a resize. Resizing is decided before each padding by the occupancy sampled then, which
+ * is the low-water time for padding triggered by takes:
+ * <ul>
+ * <li>grow when the buffer is almost drained at padding time for {@link #GROW_ROUNDS} rounds</li>
+ * <li>shrink when takes have consumed little of the under threshold by padding time for
+ * {@link #SHRINK_ROUNDS} rounds, i.e. a smaller buffer would keep up as well (this includes
+ * scheduled padding while idle)</li>
+ * </ul>
+ *
+ * @author chen
+ */
+public class ElasticBuffer extends AbstractBuffer {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(ElasticBuffer.class);
+
+  /**
+   * 添加时剩余低于容量的该百分比视为供不应求
+   */
+  private static final int GROW_PERCENT = 10;
+
+  /**
+   * 添加时剩余不低于低水位的该百分比视为供过于求
+   */
+  private static final int SHRINK_PERCENT = 75;
+
+  /**
+   * 连续多少次添加满足条件后扩容/缩容
+   */
+  private static final int GROW_ROUNDS = 2;
+  private static final int SHRINK_ROUNDS = 3;
+
+  private final int minBufferSize;
+  private final int maxBufferSize;
+  private final int paddingUnderFactor;
+  private final int paddingUpperFactor;
+
+  /**
+   * 当前添加/获取的环形队列, 和扩缩容后等待取完的旧队列
+   */
+  private volatile MpmcRingBuffer active;
+  private final AtomicReference<MpmcRingBuffer> retired = new AtomicReference<>();
+
+  /**
+   * 连续满足扩容/缩容条件的次数, 只在添加线程中访问
+   */
+  private int growRounds;
+  private int shrinkRounds;
+
+  /**
+   * @param bufferSize 初始容量
+   * @param minBufferSize 最小容量
+   * @param maxBufferSize 最大容量
+   */
+  public ElasticBuffer(int bufferSize, int minBufferSize, int maxBufferSize) {
+    this(bufferSize, minBufferSize, maxBufferSize, DEFAULT_UNDER_PADDING_PERCENT,
+        DEFAULT_UPPER_PADDING_PERCENT);
+  }
+
+  /**
+   * @param bufferSize initial size, must be positive & a power of 2
+   * @param minBufferSize must be a power of 2 and not more than bufferSize
+   * @param maxBufferSize must be a power of 2 and not less than bufferSize
+   * @param paddingUnderFactor percent in (0 - 100) of the current size
+   * @param paddingUpperFactor percent in (0 - 100) and paddingUpperFactor > paddingUnderFactor
+   */
+  public ElasticBuffer(int bufferSize, int minBufferSize, int maxBufferSize,
+      int paddingUnderFactor, int paddingUpperFactor) {
+
+    Assert.isTrue(minBufferSize > 0 && minBufferSize <= bufferSize && bufferSize <= maxBufferSize,
+        "ElasticBuffer size must be 0 < minBufferSize <= bufferSize <= maxBufferSize");
+    Assert.isTrue(Integer.bitCount(minBufferSize) == 1 && Integer.bitCount(maxBufferSize) == 1,
+        "ElasticBuffer size must be a power of 2");
+
+    this.minBufferSize = minBufferSize;
+    this.maxBufferSize = maxBufferSize;
+    this.paddingUnderFactor = paddingUnderFactor;
+    this.paddingUpperFactor = paddingUpperFactor;
+    this.active = newRing(bufferSize);
+  }
+
+  @Override
+  public synchronized boolean put(long uid) {
+    if (active.put(uid)) {
+      return true;
+    }
+    rejectedPutHandler.rejectPutBuffer(this, uid);
+    return false;
+  }
+
+  @Override
+  public synchronized int putBatch(long[] uids, int offset, int length) {
+    int count = active.putBatch(uids, offset, length);
+    if (count < length) {
+      rejectedPutHandler.rejectPutBuffer(this, uids[offset + count]);
+    }
+    return count;
+  }
+
+  @Override
+  public synchronized int putBatch(LongRange range) {
+    int count = active.putBatch(range);
+    if (count < range.getLength()) {
+      rejectedPutHandler.rejectPutBuffer(this, range.get(count));
+    }
+    return count;
+  }
+
+  /**
+   * 获取uid, 先取旧队列再取当前队列, 不加锁.
+   *
+   * @return UID, or {@link #NO_UID} if the buffer is empty
+   */
+  @Override
+  protected long poll() {
+    MpmcRingBuffer ring = retired.get();
+    if (ring != null) {
+      long sequence = ring.claimTake();
+      if (sequence != MpmcRingBuffer.EMPTY_SEQUENCE) {
+        return ring.consume(sequence);
+      }
+      // no uid is put into a retired ring, once empty it is empty forever. CAS so that a ring
+      // retired by a later resize is never cleared
+      retired.compareAndSet(ring, null);
+    }
+
+    for (; ; ) {
+      ring = active;
+      long sequence = ring.claimTake();
+      if (sequence != MpmcRingBuffer.EMPTY_SEQUENCE) {
+        long uid = ring.consume(sequence);
+        // 判断是否达到低水位
+        if (ring.size() < paddingUnderThreshold) {
+          bufferPaddingExecutor.asyncPadding();
+        }
+        return uid;
+      }
+      if (ring == active) {
+        break;
+      }
+    }
+
+    return NO_UID;
+  }
+
+  @Override
+  public int take(long[] dest, int count) {
+    int limit = Math.min(count, dest.length);
+    int taken = 0;
+
+    MpmcRingBuffer ring = retired.get();
+    if (ring != null) {
+      taken = ring.drainTo(dest, 0, limit);
+      if (taken < limit && ring.size() == 0) {
+        retired.compareAndSet(ring, null);
+      }
+    }
+    if (taken < limit) {
+      taken += active.drainTo(dest, taken, limit - taken);
+    }
+
+    // 判断是否达到低水位
+    if (size() < paddingUnderThreshold) {
+      bufferPaddingExecutor.asyncPadding();
+    }
+    return taken;
+  }
+
+  /**
+   * 在每次添加前, 根据当前占用决定是否扩容或缩容. 由获取触发的添加在低水位时采样.
+   */
+  @Override
+  protected synchronized void beforePadding() {
+    long remaining = size();
+    int currentSize = bufferSize;
+
+    growRounds = remaining < (long) currentSize * GROW_PERCENT / 100 ? growRounds + 1 : 0;
+    shrinkRounds = remaining >= (long) paddingUnderThreshold * SHRINK_PERCENT / 100
+        && remaining > 0 ? shrinkRounds + 1 : 0;
+
+    if (retired.get() != null) {
+      return;
+    }
+    if (growRounds >= GROW_ROUNDS && currentSize < maxBufferSize) {
+      resize(currentSize << 1);
+    } else if (shrinkRounds >= SHRINK_ROUNDS && currentSize > minBufferSize) {
+      resize(currentSize >> 1);
+    }
+  }
+
+  /**
+   * 使用新容量的队列, 旧队列中的uid继续被取完
+   */
+  private void resize(int newBufferSize) {
+    LOGGER.info("Resize ElasticBuffer from {} to {}", bufferSize, newBufferSize);
+    MpmcRingBuffer ring = newRing(newBufferSize);
+    retired.set(active);
+    active = ring;
+    growRounds = 0;
+    shrinkRounds = 0;
+  }
+
+  private MpmcRingBuffer newRing(int newBufferSize) {
+    MpmcRingBuffer ring = new MpmcRingBuffer(newBufferSize, paddingUnderFactor,
+        paddingUpperFactor);
+    // rejection is applied by ElasticBuffer itself
+    ring.setRejectedPutHandler((buffer, uid) -> {
+    });
+    this.bufferSize = newBufferSize;
+    this.paddingUnderThreshold = ring.getPaddingUnderThreshold();
+    this.paddingUpperThreshold = ring.getPaddingUpperThreshold();
+    return ring;
+  }
+
+  /**
+   * 获取需要添加的UID数量.
+   *
+   * @return count
+   */
+  @Override
+  public int paddingNums() {
+    return (int) Math.max(0, bufferSize - size());
+  }
+
+  /**
+   * 判断是否达到高水位上限.
+   *
+   * @return boolean
+   */
+  @Override
+  public boolean isNeedPadding() {
+    return size() >= paddingUpperThreshold;
+  }
+
+  /**
+   * Count of uids which have been put but not taken yet
+   */
+  public long size() {
+    MpmcRingBuffer ring = retired.get();
+    return active.size() + (ring == null ? 0 : ring.size());
+  }
+
+  @Override
+  public String toString() {
+    MpmcRingBuffer ring = retired.get();
+    StringBuilder builder = new StringBuilder();
+    builder.append("ElasticBuffer [bufferSize=").append(bufferSize)
+        .append(", minBufferSize=").append(minBufferSize)
+        .append(", maxBufferSize=").append(maxBufferSize)
+        .append(", active=").append(active)
+        .append(", retired=").append(ring)
+        .append(", paddingUnderThreshold=").append(paddingUnderThreshold)
+        .append(", paddingUpperThreshold=").append(paddingUpperThreshold).append("]");
+
+    return builder.toString();
+  }
+}
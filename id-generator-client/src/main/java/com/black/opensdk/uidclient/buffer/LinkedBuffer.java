@@ -3,8 +3,6 @@ package com.black.opensdk.uidclient.buffer;
 
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.atomic.AtomicInteger;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 import org.springframework.util.Assert;
 
 /**
@@ -13,8 +11,6 @@ import org.springframework.util.Assert;
  */
 public class LinkedBuffer extends AbstractBuffer {
 
-  private static final Logger LOGGER = LoggerFactory.getLogger(LinkedBuffer.class);
-
   private ConcurrentLinkedQueue <Long> concurrentLinkedQueue;
 
   private AtomicInteger currentSize;
@@ -55,30 +51,80 @@ public class LinkedBuffer extends AbstractBuffer {
   @Override
   public  boolean put(long uid) {
     //数量超出,因为linked获取size是需要遍历链表,效率低下,故需要主动进行size记录.
-    if (bufferSize < currentSize.get() + 1) {
+    if (reserve(1) == 0) {
       rejectedPutHandler.rejectPutBuffer(this, uid);
-    }
-    if (concurrentLinkedQueue.add(uid)) {
-      currentSize.incrementAndGet();
-      return true;
-    } else {
       return false;
     }
+    concurrentLinkedQueue.add(uid);
+    return true;
   }
 
   @Override
-  public long take() {
-    if (paddingUpperThreshold < (currentSize.get() - 1)) {
-      bufferPaddingExecutor.asyncPadding();
+  public int putBatch(long[] uids, int offset, int length) {
+    int count = reserve(length);
+    for (int i = 0; i < count; i++) {
+      concurrentLinkedQueue.add(uids[offset + i]);
+    }
+    if (count < length) {
+      rejectedPutHandler.rejectPutBuffer(this, uids[offset + count]);
+    }
+    return count;
+  }
+
+  @Override
+  public int putBatch(LongRange range) {
+    int count = reserve(range.getLength());
+    for (int i = 0; i < count; i++) {
+      concurrentLinkedQueue.add(range.get(i));
+    }
+    if (count < range.getLength()) {
+      rejectedPutHandler.rejectPutBuffer(this, range.get(count));
+    }
+    return count;
+  }
+
+  /**
+   * CAS 预留空间后再添加, 并发添加时总数不超过 bufferSize
+   *
+   * @return count of reserved slots, at most length
+   */
+  private int reserve(int length) {
+    for (; ; ) {
+      int size = currentSize.get();
+      int count = Math.max(0, Math.min(length, bufferSize - size));
+      if (count == 0 || currentSize.compareAndSet(size, size + count)) {
+        return count;
+      }
     }
+  }
+
+  @Override
+  protected long poll() {
     Long uid = concurrentLinkedQueue.poll();
     if (uid == null) {
-      rejectedTakeHandler.rejectTakeBuffer(this);
+      return NO_UID;
+    }
+    // 判断是否达到低水位
+    if (currentSize.decrementAndGet() < paddingUnderThreshold) {
+      bufferPaddingExecutor.asyncPadding();
     }
-    currentSize.decrementAndGet();
     return uid;
   }
 
+  @Override
+  public int take(long[] dest, int count) {
+    int limit = Math.min(count, dest.length);
+    int taken = 0;
+    Long uid;
+    while (taken < limit && (uid = concurrentLinkedQueue.poll()) != null) {
+      dest[taken++] = uid;
+    }
+    if (currentSize.addAndGet(-taken) < paddingUnderThreshold) {
+      bufferPaddingExecutor.asyncPadding();
+    }
+    return taken;
+  }
+
   @Override
   public int paddingNums() {
     return bufferSize - currentSize.get();
@@ -99,6 +145,6 @@ public class LinkedBuffer extends AbstractBuffer {
   public String toString() {
     return "LinkedBuffer{" + "{bufferSize=" + bufferSize + ", currentSize=" + currentSize
         +", paddingUnderThreshold=" + paddingUnderThreshold + ", paddingUpperThreshold="
-        + paddingUpperThreshold + "}" + "Buffer:[" +concurrentLinkedQueue.toString() + "]";
+        + paddingUpperThreshold + "}";
   }
 }
@@ -0,0 +1,63 @@
+package com.black.opensdk.uidclient.buffer;
+
+import org.springframework.util.Assert;
+
+/**
+ * 连续的uid号段 [start, start + length).
+ *
+ * @author chen
+ */
+public final class LongRange {
+
+  private final long start;
+
+  private final int length;
+
+  public LongRange(long start, int length) {
+    Assert.isTrue(length >= 0, "Range length must not be negative");
+    Assert.isTrue(start <= Long.MAX_VALUE - length, "Range end overflow");
+    this.start = start;
+    this.length = length;
+  }
+
+  /**
+   * 号段内第index个uid
+   */
+  public long get(int index) {
+    return start + index;
+  }
+
+  /**
+   * 展开为 long[]
+   */
+  public long[] toArray() {
+    long[] uids = new long[length];
+    for (int i = 0; i < length; i++) {
+      uids[i] = start + i;
+    }
+    return uids;
+  }
+
+  /**
+   * Getters
+   */
+  public long getStart() {
+    return start;
+  }
+
+  /**
+   * exclusive
+   */
+  public long getEnd() {
+    return start + length;
+  }
+
+  public int getLength() {
+    return length;
+  }
+
+  @Override
+  public String toString() {
+    return "LongRange[" + start + ", " + getEnd() + ")";
+  }
+}
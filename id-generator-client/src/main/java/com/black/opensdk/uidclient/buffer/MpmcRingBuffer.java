@@ -0,0 +1,388 @@
+package com.black.opensdk.uidclient.buffer;
+
+import com.black.opensdk.uidclient.util.PaddedAtomicLong;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import org.springframework.util.Assert;
+
+/**
+ * 无锁环形队列缓冲区(多生产者/多消费者).
+ *
+ * Each slot carries a sequence number: a slot at position {@code p} can be put when its sequence
+ * equals {@code p}, and can be taken when its sequence equals {@code p + 1}. Producers and
+ * consumers only CAS on {@link #tail} / {@link #cursor}, so neither put nor take holds a lock.
+ *
+ * @author chen
+ */
+public class MpmcRingBuffer extends AbstractBuffer {
+
+  /**
+   * claimTake() 返回值: 没有可取的uid
+   */
+  protected static final long EMPTY_SEQUENCE = -1L;
+
+  /**
+   * 环形队列长度, 位置掩码, uid槽, 序号槽
+   */
+  private final int ringSize;
+  private final long indexMask;
+  private final long[] slots;
+  private final AtomicLongArray sequences;
+
+  /**
+   * 下一个可添加位置
+   */
+  private final AtomicLong tail = new PaddedAtomicLong(0);
+
+  /**
+   * 下一个可读取位置
+   */
+  private final AtomicLong cursor = new PaddedAtomicLong(0);
+
+  /**
+   * 添加/获取日志, null 表示不记录
+   */
+  private BufferJournal journal;
+
+  /**
+   * @param bufferSize bufferSize 必须是2的倍数
+   */
+  public MpmcRingBuffer(int bufferSize) {
+    this(bufferSize, DEFAULT_UNDER_PADDING_PERCENT, DEFAULT_UPPER_PADDING_PERCENT);
+  }
+
+  /**
+   * @param bufferSize must be positive & a power of 2
+   * @param paddingUnderFactor percent in (0 - 100), padding buffer will be triggered when
+   * tail-cursor<threshold
+   * @param paddingUpperFactor percent in (0 - 100) and paddingUpperFactor > paddingUnderFactor
+   */
+  public MpmcRingBuffer(int bufferSize, int paddingUnderFactor, int paddingUpperFactor) {
+    this(bufferSize, bufferSize, paddingUnderFactor, paddingUpperFactor);
+  }
+
+  /**
+   * @param bufferSize max count of uids held by the buffer, must not more than ringSize
+   * @param ringSize length of slots, must be positive & a power of 2
+   */
+  protected MpmcRingBuffer(int bufferSize, int ringSize, int paddingUnderFactor,
+      int paddingUpperFactor) {
+
+    Assert.isTrue(bufferSize > 0L, "RingBuffer size must be positive");
+    Assert.isTrue(bufferSize <= ringSize, "RingBuffer size must not more than ring size");
+    Assert.isTrue(paddingUpperFactor > paddingUnderFactor,
+        "paddingUpperFactor  must more than paddingUnderFactor");
+    Assert.isTrue(Integer.bitCount(ringSize) == 1, "RingBuffer size must be a power of 2");
+    Assert.isTrue(paddingUnderFactor > 0 && paddingUnderFactor < 100 && paddingUpperFactor > 0
+        && paddingUpperFactor < 100, "factor must 0 - 100");
+
+    this.bufferSize = bufferSize;
+    this.ringSize = ringSize;
+    this.indexMask = ringSize - 1;
+    this.slots = new long[ringSize];
+    this.sequences = initSequences(ringSize);
+
+    this.paddingUnderThreshold = bufferSize * paddingUnderFactor / 100;
+    this.paddingUpperThreshold = bufferSize * paddingUpperFactor / 100;
+  }
+
+  /**
+   * 添加uid: CAS 抢占 tail 位置, 写入uid后发布该槽的序号.
+   *
+   * @return false means that the buffer is full, apply {@link RejectedPutBufferHandler}
+   */
+  @Override
+  public boolean put(long uid) {
+    long currentTail = tail.get();
+    int index;
+    for (; ; ) {
+      index = calSlotIndex(currentTail);
+      long distance = sequences.get(index) - currentTail;
+      if (distance == 0) {
+        if (currentTail - cursor.get() >= bufferSize) {
+          // ring has a free slot, but the buffer already holds bufferSize uids
+          rejectedPutHandler.rejectPutBuffer(this, uid);
+          return false;
+        }
+        if (tail.compareAndSet(currentTail, currentTail + 1)) {
+          break;
+        }
+        currentTail = tail.get();
+      } else if (distance < 0) {
+        // slot still holds an uid which has not been taken, buffer is full
+        rejectedPutHandler.rejectPutBuffer(this, uid);
+        return false;
+      } else {
+        currentTail = tail.get();
+      }
+    }
+
+    // 位置不能交换,必须先写uid,然后再发布序号
+    slots[index] = uid;
+    if (journal != null) {
+      journal.onPut(currentTail, uid);
+    }
+    sequences.lazySet(index, currentTail + 1);
+    return true;
+  }
+
+  /**
+   * 批量添加uid, 只做一次 CAS 移动tail.
+   *
+   * @return count of uids put, the rest are rejected by {@link RejectedPutBufferHandler}
+   */
+  @Override
+  public int putBatch(long[] uids, int offset, int length) {
+    return putBatch(uids, offset, 0L, length);
+  }
+
+  @Override
+  public int putBatch(LongRange range) {
+    return putBatch(null, 0, range.getStart(), range.getLength());
+  }
+
+  /**
+   * 抢占一段连续的空闲位置并写入, uids 为 null 时写入 [rangeStart, rangeStart + length).
+   */
+  private int putBatch(long[] uids, int offset, long rangeStart, int length) {
+    long currentTail = tail.get();
+    int claimed = 0;
+    while (length > 0) {
+      long free = Math.min(length, bufferSize - (currentTail - cursor.get()));
+      claimed = 0;
+      while (claimed < free
+          && sequences.get(calSlotIndex(currentTail + claimed)) == currentTail + claimed) {
+        claimed++;
+      }
+      if (claimed == 0) {
+        long latestTail = tail.get();
+        if (latestTail == currentTail) {
+          break;
+        }
+        currentTail = latestTail;
+      } else if (tail.compareAndSet(currentTail, currentTail + claimed)) {
+        break;
+      } else {
+        currentTail = tail.get();
+      }
+    }
+
+    for (int i = 0; i < claimed; i++) {
+      long sequence = currentTail + i;
+      int index = calSlotIndex(sequence);
+      slots[index] = uids == null ? rangeStart + i : uids[offset + i];
+      if (journal != null) {
+        journal.onPut(sequence, slots[index]);
+      }
+      sequences.lazySet(index, sequence + 1);
+    }
+
+    if (claimed < length) {
+      rejectedPutHandler
+          .rejectPutBuffer(this, uids == null ? rangeStart + claimed : uids[offset + claimed]);
+    }
+    return claimed;
+  }
+
+  /**
+   * 获取uid, CAS 移动cursor, 不加锁.
+   *
+   * Before returning the UID, we also check whether reach the padding threshold, the padding
+   * buffer operation will be triggered in another thread<br> If there is no more available UID
+   * to be taken, {@link #NO_UID} is returned and {@link #take()} applies the specified
+   * {@link RejectedTakeBufferHandler}<br>
+   *
+   * @return UID, or {@link #NO_UID} if the buffer is empty
+   */
+  @Override
+  protected long poll() {
+    long sequence = claimTake();
+
+    // 如果是末尾,说明已经没有数据可取
+    if (sequence == EMPTY_SEQUENCE) {
+      return NO_UID;
+    }
+
+    long uid = consume(sequence);
+
+    // 判断是否达到低水位
+    if (tail.get() - sequence - 1 < paddingUnderThreshold) {
+      bufferPaddingExecutor.asyncPadding();
+    }
+    return uid;
+  }
+
+  /**
+   * 批量获取uid, 只做一次 CAS 移动cursor.
+   *
+   * @return count of uids copied into dest
+   */
+  @Override
+  public int take(long[] dest, int count) {
+    int taken = drainTo(dest, 0, Math.min(count, dest.length));
+
+    // 判断是否达到低水位
+    if (size() < paddingUnderThreshold) {
+      bufferPaddingExecutor.asyncPadding();
+    }
+    return taken;
+  }
+
+  /**
+   * 抢占一段连续的已发布位置, 并将其中的uid拷贝至dest.
+   *
+   * @return count of uids copied into dest, 0 if there is no published uid
+   */
+  protected int drainTo(long[] dest, int offset, int count) {
+    long currentCursor = cursor.get();
+    int claimed;
+    for (; ; ) {
+      long available = Math.min(count, tail.get() - currentCursor);
+      claimed = 0;
+      while (claimed < available && sequences.get(calSlotIndex(currentCursor + claimed))
+          == currentCursor + claimed + 1) {
+        claimed++;
+      }
+      if (claimed == 0) {
+        long latestCursor = cursor.get();
+        if (latestCursor == currentCursor) {
+          return 0;
+        }
+        currentCursor = latestCursor;
+      } else if (cursor.compareAndSet(currentCursor, currentCursor + claimed)) {
+        break;
+      } else {
+        currentCursor = cursor.get();
+      }
+    }
+
+    // 先拷贝uid(最多分两段), 再释放这些槽
+    int startIndex = calSlotIndex(currentCursor);
+    int firstPart = Math.min(claimed, ringSize - startIndex);
+    System.arraycopy(slots, startIndex, dest, offset, firstPart);
+    System.arraycopy(slots, 0, dest, offset + firstPart, claimed - firstPart);
+    for (int i = 0; i < claimed; i++) {
+      long sequence = currentCursor + i;
+      sequences.lazySet(calSlotIndex(sequence), sequence + ringSize);
+    }
+    if (journal != null) {
+      journal.onTake(currentCursor + claimed);
+    }
+    return claimed;
+  }
+
+  /**
+   * 抢占下一个可读取的位置.
+   *
+   * @return claimed sequence, or {@link #EMPTY_SEQUENCE} if there is no published uid
+   */
+  protected long claimTake() {
+    long currentCursor = cursor.get();
+    for (; ; ) {
+      long distance = sequences.get(calSlotIndex(currentCursor)) - (currentCursor + 1);
+      if (distance == 0) {
+        if (cursor.compareAndSet(currentCursor, currentCursor + 1)) {
+          return currentCursor;
+        }
+        currentCursor = cursor.get();
+      } else if (distance < 0) {
+        return EMPTY_SEQUENCE;
+      } else {
+        currentCursor = cursor.get();
+      }
+    }
+  }
+
+  /**
+   * 读取已抢占位置的uid, 并释放该槽给下一轮添加.
+   */
+  protected long consume(long sequence) {
+    int index = calSlotIndex(sequence);
+    long uid = slots[index];
+    sequences.lazySet(index, sequence + ringSize);
+    if (journal != null) {
+      journal.onTake(sequence + 1);
+    }
+    return uid;
+  }
+
+  /**
+   * 获取需要添加的UID数量.
+   *
+   * @return count
+   */
+  @Override
+  public int paddingNums() {
+    return (int) (bufferSize - size());
+  }
+
+  /**
+   * 判断是否达到高水位上限.
+   *
+   * @return boolean
+   */
+  @Override
+  public boolean isNeedPadding() {
+    return size() >= paddingUpperThreshold;
+  }
+
+  /**
+   * Count of uids which have been put but not taken yet
+   */
+  public long size() {
+    long currentCursor = cursor.get();
+    return Math.max(0, tail.get() - currentCursor);
+  }
+
+  /**
+   * Calculate slot index with the slot sequence (sequence % ringSize)
+   */
+  protected int calSlotIndex(long sequence) {
+    return (int) (sequence & indexMask);
+  }
+
+  /**
+   * Initialize sequence of slot i as i, means that every slot can put
+   */
+  private AtomicLongArray initSequences(int ringSize) {
+    AtomicLongArray sequences = new AtomicLongArray(ringSize);
+    for (int i = 0; i < ringSize; i++) {
+      sequences.set(i, i);
+    }
+    return sequences;
+  }
+
+  /**
+   * Getters
+   */
+  public long getTail() {
+    return tail.get();
+  }
+
+  public long getCursor() {
+    return cursor.get();
+  }
+
+  public int getRingSize() {
+    return ringSize;
+  }
+
+  /**
+   * 设置添加/获取日志, 必须在添加任何uid之前设置
+   */
+  public void setJournal(BufferJournal journal) {
+    Assert.isTrue(tail.get() == 0, "Journal must be set before putting any uid!");
+    this.journal = journal;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder builder = new StringBuilder();
+    builder.append(getClass().getSimpleName()).append(" [bufferSize=").append(bufferSize)
+        .append(", tail=").append(tail).append(", cursor=").append(cursor)
+        .append(", paddingUnderThreshold=").append(paddingUnderThreshold)
+        .append(", paddingUpperThreshold=").append(paddingUpperThreshold).append("]");
+
+    return builder.toString();
+  }
+}
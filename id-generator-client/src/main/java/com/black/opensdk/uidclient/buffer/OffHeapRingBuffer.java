@@ -0,0 +1,244 @@
+package com.black.opensdk.uidclient.buffer;
+
+import com.black.opensdk.uidclient.util.PaddedAtomicLong;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.util.concurrent.atomic.AtomicLong;
+import org.springframework.util.Assert;
+
+/**
+ * 堆外环形队列缓冲区, uid 保存在 direct memory 中, 适用于缓存千万级uid而不增加GC标记开销.
+ *
+ * Slots live in a direct {@link LongBuffer}, there is no per-slot flag or sequence at all: the
+ * only state on heap are the two padded counters {@link #tail} and {@link #cursor}. Puts are
+ * serialized (padding has one writer at a time) and publish slots by moving tail after writing
+ * them. Takes read the slot first and then CAS the cursor: a producer only overwrites a slot once
+ * the cursor has moved past it, so a successful CAS guarantees the value read was not overwritten.
+ *
+ * @author chen
+ */
+public class OffHeapRingBuffer extends AbstractBuffer {
+
+  /**
+   * direct buffer 最多 Integer.MAX_VALUE 字节, 即最多 2^27 个8字节的槽
+   */
+  public static final int MAX_RING_SIZE = 1 << 27;
+
+  /**
+   * 环形队列长度, 位置掩码, 堆外uid槽
+   */
+  private final int ringSize;
+  private final long indexMask;
+  private final LongBuffer slots;
+
+  /**
+   * 下一个可添加位置
+   */
+  private final AtomicLong tail = new PaddedAtomicLong(0);
+
+  /**
+   * 下一个可读取位置
+   */
+  private final AtomicLong cursor = new PaddedAtomicLong(0);
+
+  /**
+   * @param bufferSize 最多缓存的uid个数
+   */
+  public OffHeapRingBuffer(int bufferSize) {
+    this(bufferSize, DEFAULT_UNDER_PADDING_PERCENT, DEFAULT_UPPER_PADDING_PERCENT);
+  }
+
+  /**
+   * @param bufferSize max count of uids held by the buffer, must be positive and not more than
+   * {@link #MAX_RING_SIZE}, the slots are rounded up to the next power of 2
+   * @param paddingUnderFactor percent in (0 - 100), padding buffer will be triggered when
+   * tail-cursor<threshold
+   * @param paddingUpperFactor percent in (0 - 100) and paddingUpperFactor > paddingUnderFactor
+   */
+  public OffHeapRingBuffer(int bufferSize, int paddingUnderFactor, int paddingUpperFactor) {
+
+    Assert.isTrue(bufferSize > 0L, "RingBuffer size must be positive");
+    Assert.isTrue(bufferSize <= MAX_RING_SIZE, "RingBuffer size must not more than 2^27");
+    Assert.isTrue(paddingUpperFactor > paddingUnderFactor,
+        "paddingUpperFactor  must more than paddingUnderFactor");
+    Assert.isTrue(paddingUnderFactor > 0 && paddingUnderFactor < 100 && paddingUpperFactor > 0
+        && paddingUpperFactor < 100, "factor must 0 - 100");
+
+    this.bufferSize = bufferSize;
+    this.ringSize = bufferSize == 1 ? 1 : Integer.highestOneBit(bufferSize - 1) << 1;
+    this.indexMask = ringSize - 1;
+    this.slots = ByteBuffer.allocateDirect(ringSize * Long.BYTES).order(ByteOrder.nativeOrder())
+        .asLongBuffer();
+
+    this.paddingUnderThreshold = (int) ((long) bufferSize * paddingUnderFactor / 100);
+    this.paddingUpperThreshold = (int) ((long) bufferSize * paddingUpperFactor / 100);
+  }
+
+  /**
+   * 添加uid, 写入槽后移动tail发布.
+   *
+   * @return false means that the buffer is full, apply {@link RejectedPutBufferHandler}
+   */
+  @Override
+  public synchronized boolean put(long uid) {
+    long currentTail = tail.get();
+    if (currentTail - cursor.get() >= bufferSize) {
+      rejectedPutHandler.rejectPutBuffer(this, uid);
+      return false;
+    }
+
+    // 位置不能交换,必须先写uid,然后再发布tail
+    slots.put(calSlotIndex(currentTail), uid);
+    tail.lazySet(currentTail + 1);
+    return true;
+  }
+
+  @Override
+  public synchronized int putBatch(long[] uids, int offset, int length) {
+    return putBatch(uids, offset, 0L, length);
+  }
+
+  @Override
+  public synchronized int putBatch(LongRange range) {
+    return putBatch(null, 0, range.getStart(), range.getLength());
+  }
+
+  /**
+   * 写入所有槽后一次移动tail, uids 为 null 时写入 [rangeStart, rangeStart + length).
+   */
+  private int putBatch(long[] uids, int offset, long rangeStart, int length) {
+    long currentTail = tail.get();
+    int count = (int) Math.max(0, Math.min(length, bufferSize - (currentTail - cursor.get())));
+    for (int i = 0; i < count; i++) {
+      slots.put(calSlotIndex(currentTail + i), uids == null ? rangeStart + i : uids[offset + i]);
+    }
+    if (count > 0) {
+      tail.lazySet(currentTail + count);
+    }
+
+    if (count < length) {
+      rejectedPutHandler
+          .rejectPutBuffer(this, uids == null ? rangeStart + count : uids[offset + count]);
+    }
+    return count;
+  }
+
+  /**
+   * 获取uid, 先读取槽再 CAS 移动cursor, 不加锁.
+   *
+   * @return UID, or {@link #NO_UID} if the buffer is empty
+   */
+  @Override
+  protected long poll() {
+    long currentCursor = cursor.get();
+    for (; ; ) {
+      long currentTail = tail.get();
+      if (currentCursor >= currentTail) {
+        break;
+      }
+      long uid = slots.get(calSlotIndex(currentCursor));
+      if (cursor.compareAndSet(currentCursor, currentCursor + 1)) {
+        // 判断是否达到低水位
+        if (currentTail - currentCursor - 1 < paddingUnderThreshold) {
+          bufferPaddingExecutor.asyncPadding();
+        }
+        return uid;
+      }
+      currentCursor = cursor.get();
+    }
+
+    // 如果是末尾,说明已经没有数据可取
+    return NO_UID;
+  }
+
+  /**
+   * 批量获取uid, 拷贝后只做一次 CAS 移动cursor.
+   *
+   * @return count of uids copied into dest
+   */
+  @Override
+  public int take(long[] dest, int count) {
+    int limit = Math.min(count, dest.length);
+    int taken = 0;
+    long currentCursor = cursor.get();
+    while (limit > 0) {
+      int available = (int) Math.min(limit, tail.get() - currentCursor);
+      if (available <= 0) {
+        break;
+      }
+      for (int i = 0; i < available; i++) {
+        dest[i] = slots.get(calSlotIndex(currentCursor + i));
+      }
+      if (cursor.compareAndSet(currentCursor, currentCursor + available)) {
+        taken = available;
+        break;
+      }
+      currentCursor = cursor.get();
+    }
+
+    // 判断是否达到低水位
+    if (size() < paddingUnderThreshold) {
+      bufferPaddingExecutor.asyncPadding();
+    }
+    return taken;
+  }
+
+  /**
+   * 获取需要添加的UID数量.
+   *
+   * @return count
+   */
+  @Override
+  public int paddingNums() {
+    return (int) (bufferSize - size());
+  }
+
+  /**
+   * 判断是否达到高水位上限.
+   *
+   * @return boolean
+   */
+  @Override
+  public boolean isNeedPadding() {
+    return size() >= paddingUpperThreshold;
+  }
+
+  /**
+   * Count of uids which have been put but not taken yet
+   */
+  public long size() {
+    long currentCursor = cursor.get();
+    return Math.max(0, tail.get() - currentCursor);
+  }
+
+  /**
+   * Calculate slot index with the slot sequence (sequence % ringSize)
+   */
+  protected int calSlotIndex(long sequence) {
+    return (int) (sequence & indexMask);
+  }
+
+  /**
+   * Getters
+   */
+  public long getTail() {
+    return tail.get();
+  }
+
+  public long getCursor() {
+    return cursor.get();
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder builder = new StringBuilder();
+    builder.append("OffHeapRingBuffer [bufferSize=").append(bufferSize)
+        .append(", ringSize=").append(ringSize)
+        .append(", tail=").append(tail).append(", cursor=").append(cursor)
+        .append(", paddingUnderThreshold=").append(paddingUnderThreshold)
+        .append(", paddingUpperThreshold=").append(paddingUpperThreshold).append("]");
+
+    return builder.toString();
+  }
+}
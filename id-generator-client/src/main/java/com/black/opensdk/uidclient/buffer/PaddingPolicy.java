@@ -0,0 +1,32 @@
+package com.black.opensdk.uidclient.buffer;
+
+/**
+ * 添加策略, 由 {@link BufferPaddingExecutor} 在每次添加时调用, 可在运行时调整水位和批量大小.
+ *
+ * @author chen
+ */
+public interface PaddingPolicy {
+
+  /**
+   * 每次添加开始前调用
+   *
+   * @param buffer 缓冲区
+   * @param paddedUids 累计已添加的uid个数
+   */
+  void beforePadding(AbstractBuffer buffer, long paddedUids);
+
+  /**
+   * 本次向 provider 批量获取的个数
+   *
+   * @param buffer 缓冲区
+   * @return 批量获取的个数, 不超过 {@link Buffer#paddingNums()}
+   */
+  int paddingNums(AbstractBuffer buffer);
+
+  /**
+   * 记录一次 provider 批量获取的耗时
+   *
+   * @param latencyNanos 耗时 Unit as nanoseconds
+   */
+  void recordProviderLatency(long latencyNanos);
+}
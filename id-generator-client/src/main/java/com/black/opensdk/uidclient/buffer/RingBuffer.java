@@ -3,10 +3,9 @@ package com.black.opensdk.uidclient.buffer;
 
 import com.black.opensdk.uidclient.util.PaddedAtomicLong;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 import org.springframework.util.Assert;
 
 /**
@@ -15,8 +14,6 @@ import org.springframework.util.Assert;
  */
 public class RingBuffer extends AbstractBuffer {
 
-  private static final Logger LOGGER = LoggerFactory.getLogger(RingBuffer.class);
-
   private Lock lock = new ReentrantLock();
   /**
    * 常量
@@ -31,7 +28,7 @@ public class RingBuffer extends AbstractBuffer {
    */
   private final long indexMask;
   private final long[] slots;
-  private final PaddedAtomicLong[] flags;
+  private final AtomicLongArray flags;
   private final AtomicLong useFlag = new PaddedAtomicLong(START_POINT);
 
   /**
@@ -89,21 +86,13 @@ public class RingBuffer extends AbstractBuffer {
     // tail catches the cursor, means that you can't put any cause of RingBuffer is full
     long distance = currentTail - (currentCursor == START_POINT ? 0 : currentCursor);
     if (distance == bufferSize - 1) {
-      if(LOGGER.isDebugEnabled()){
-        LOGGER.debug("Buffer is full!!!");
-      }
       rejectedPutHandler.rejectPutBuffer(this, uid);
       return false;
     }
 
     // 1. pre-check whether the flag is CAN_PUT_FLAG
     int nextTailIndex = calSlotIndex(currentTail + 1);
-    if (flags[nextTailIndex].get() != CAN_PUT_FLAG) {
-      if(LOGGER.isDebugEnabled()){
-        LOGGER.debug("CAN NOT PUT, BECAUSE FLAG IS 1 . NextTailIndex :" + nextTailIndex
-            + " Current Usage Flag: " + calSlotIndex(useFlag.get()) + " Current Cursor :"
-            + calSlotIndex(cursor.get()) + "flag : " + flags[nextTailIndex].get());
-      }
+    if (flags.get(nextTailIndex) != CAN_PUT_FLAG) {
       rejectedPutHandler.rejectPutBuffer(this, uid);
       return false;
     }
@@ -112,12 +101,59 @@ public class RingBuffer extends AbstractBuffer {
     // 3. update next slot' flag to CAN_TAKE_FLAG
     // 4. publish tail with sequence increase by one
     slots[nextTailIndex] = uid;
-    flags[nextTailIndex].set(CAN_TAKE_FLAG);
+    flags.set(nextTailIndex, CAN_TAKE_FLAG);
     tail.incrementAndGet();
 
     return true;
   }
 
+  /**
+   * 批量添加uid, 写完所有槽后一次移动末尾标志.
+   *
+   * @return count of uids put, the rest are rejected by {@link RejectedPutBufferHandler}
+   */
+  @Override
+  public synchronized int putBatch(long[] uids, int offset, int length) {
+    return putBatch(uids, offset, 0L, length);
+  }
+
+  @Override
+  public synchronized int putBatch(LongRange range) {
+    return putBatch(null, 0, range.getStart(), range.getLength());
+  }
+
+  /**
+   * uids 为 null 时写入 [rangeStart, rangeStart + length).
+   */
+  private int putBatch(long[] uids, int offset, long rangeStart, int length) {
+    long currentTail = tail.get();
+    long currentCursor = cursor.get();
+
+    // same as put(): at most bufferSize - 1 uids can be held
+    long distance = currentTail - (currentCursor == START_POINT ? 0 : currentCursor);
+    int capacity = (int) Math.min(length, bufferSize - 1 - distance);
+
+    int count = 0;
+    while (count < capacity) {
+      int nextTailIndex = calSlotIndex(currentTail + 1 + count);
+      if (flags.get(nextTailIndex) != CAN_PUT_FLAG) {
+        break;
+      }
+      slots[nextTailIndex] = uids == null ? rangeStart + count : uids[offset + count];
+      flags.set(nextTailIndex, CAN_TAKE_FLAG);
+      count++;
+    }
+    if (count > 0) {
+      tail.addAndGet(count);
+    }
+
+    if (count < length) {
+      rejectedPutHandler
+          .rejectPutBuffer(this, uids == null ? rangeStart + count : uids[offset + count]);
+    }
+    return count;
+  }
+
   /**
    * 获取uid,并移动cursor, 通过AtomicLong.updataAndGet()保证线程安全.
    *
@@ -147,11 +183,6 @@ public class RingBuffer extends AbstractBuffer {
     // 判断是否达到低水位
     long currentTail = tail.get();
     if (currentTail - nextCursor < paddingUnderThreshold) {
-      if (LOGGER.isDebugEnabled()) {
-        LOGGER.debug(
-            "Need Padding : currentTail - nextCursor = [{} - {} = {}] paddingUnderThreshold = {}",
-            currentTail, nextCursor, currentTail - currentCursor, paddingUnderThreshold);
-      }
       bufferPaddingExecutor.asyncPadding();
     }
 
@@ -161,17 +192,92 @@ public class RingBuffer extends AbstractBuffer {
     }
 
     int nextCursorIndex = calSlotIndex(nextCursor);
-    Assert.isTrue(flags[nextCursorIndex].get() == CAN_TAKE_FLAG, "Cursor not in can take status");
+    if (flags.get(nextCursorIndex) != CAN_TAKE_FLAG) {
+      throw new IllegalStateException("Cursor not in can take status");
+    }
 
     // 位置不能交换,必须先取id,然后再设置标记位
     long uid = slots[nextCursorIndex];
-    flags[nextCursorIndex].set(CAN_PUT_FLAG);
+    flags.set(nextCursorIndex, CAN_PUT_FLAG);
+
+
+    useFlag.incrementAndGet();
+    return uid;
+  }
+
+  /**
+   * 获取一个uid, 与 {@link #take()} 相同但缓冲区为空时返回 {@link #NO_UID}, 供带超时的获取使用.
+   *
+   * @return UID, or {@link #NO_UID} if the buffer is empty
+   */
+  @Override
+  protected long poll() {
+    long currentCursor;
+    long nextCursor;
+
+    lock.lock();
+    try {
+      currentCursor = cursor.get();
+      nextCursor = cursor.updateAndGet(old -> old == tail.get() ? old : old + 1);
+    } finally {
+      lock.unlock();
+    }
 
+    // 判断是否达到低水位
+    if (tail.get() - nextCursor < paddingUnderThreshold) {
+      bufferPaddingExecutor.asyncPadding();
+    }
+    if (nextCursor == currentCursor) {
+      return NO_UID;
+    }
 
+    int nextCursorIndex = calSlotIndex(nextCursor);
+    if (flags.get(nextCursorIndex) != CAN_TAKE_FLAG) {
+      throw new IllegalStateException("Cursor not in can take status");
+    }
+    long uid = slots[nextCursorIndex];
+    flags.set(nextCursorIndex, CAN_PUT_FLAG);
     useFlag.incrementAndGet();
     return uid;
   }
 
+  /**
+   * 批量获取uid, 在锁内一次移动cursor, 锁外拷贝uid并重置标志位.
+   *
+   * @return count of uids copied into dest
+   */
+  @Override
+  public int take(long[] dest, int count) {
+    long currentCursor;
+    int taken;
+
+    lock.lock();
+    try {
+      currentCursor = cursor.get();
+      taken = (int) Math.min(Math.min(count, dest.length), tail.get() - currentCursor);
+      if (taken > 0) {
+        cursor.addAndGet(taken);
+      }
+    } finally {
+      lock.unlock();
+    }
+
+    for (int i = 0; i < taken; i++) {
+      int cursorIndex = calSlotIndex(currentCursor + 1 + i);
+      dest[i] = slots[cursorIndex];
+      flags.set(cursorIndex, CAN_PUT_FLAG);
+    }
+    if (taken > 0) {
+      useFlag.addAndGet(taken);
+    }
+
+    // 判断是否达到低水位
+    if (tail.get() - currentCursor - taken < paddingUnderThreshold) {
+      bufferPaddingExecutor.asyncPadding();
+    }
+    return taken;
+  }
+
   /**
    * 获取需要添加的UID数量.
    *
@@ -182,10 +288,6 @@ public class RingBuffer extends AbstractBuffer {
     long currentTail = tail.get();
     long currentUseFlag = useFlag.get();
     long distance = currentTail - (currentUseFlag == START_POINT ? 0 : currentUseFlag);
-    if (LOGGER.isDebugEnabled()) {
-      LOGGER.debug("Current UseFlag: " + currentUseFlag + " Current Cursor: " + cursor.get()
-          + "  Current Tail: " + currentTail + " Distance :" + distance);
-    }
     return (int) (bufferSize - distance - 1);
   }
 
@@ -198,12 +300,7 @@ public class RingBuffer extends AbstractBuffer {
   public boolean isNeedPadding() {
     long currentCursor = cursor.get();
     long currentTail = tail.get();
-    boolean result = currentTail - currentCursor >= paddingUpperThreshold;
-    if (LOGGER.isDebugEnabled()) {
-      LOGGER.debug("Current Cursor: " + currentCursor + "Current Tail: " + currentTail
-          + "Padding Upper Threshold:  " + paddingUpperThreshold);
-    }
-    return result;
+    return currentTail - currentCursor >= paddingUpperThreshold;
   }
 
 
@@ -216,12 +313,12 @@ public class RingBuffer extends AbstractBuffer {
 
 
   /**
-   * Initialize flags as CAN_PUT_FLAG
+   * Initialize flags as CAN_PUT_FLAG, all flags live in one flat long array (8 bytes per slot)
    */
-  private PaddedAtomicLong[] initFlags(int bufferSize) {
-    PaddedAtomicLong[] flags = new PaddedAtomicLong[bufferSize];
+  private AtomicLongArray initFlags(int bufferSize) {
+    AtomicLongArray flags = new AtomicLongArray(bufferSize);
     for (int i = 0; i < bufferSize; i++) {
-      flags[i] = new PaddedAtomicLong(CAN_PUT_FLAG);
+      flags.set(i, CAN_PUT_FLAG);
     }
     return flags;
   }
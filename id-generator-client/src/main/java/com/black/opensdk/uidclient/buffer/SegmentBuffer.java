@@ -0,0 +1,327 @@
+package com.black.opensdk.uidclient.buffer;
+
+import com.black.opensdk.uidclient.util.PaddedAtomicLong;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import org.springframework.util.Assert;
+
+/**
+ * 号段缓冲区, 连续的uid只保存 [start, start + length) 号段而不保存每个uid, 适用于上游按号段下发uid的场景.
+ *
+ * Segments are kept in a singly linked queue. take() is a single getAndIncrement on the index of
+ * the current segment; when it runs out, consumers CAS the current segment to its successor.
+ * Padding is triggered at the low watermark like the other engines. A run of at least
+ * {@link #MIN_RANGE_LENGTH} contiguous uids is stored as a range, shorter runs and single puts
+ * are staged and stored {@link #STAGE_SIZE} at a time in an array segment, so non-contiguous uids
+ * cost about a long each instead of a segment each. Consumers publish the staged uids themselves
+ * when they run out of segments.
+ *
+ * @author chen
+ */
+public class SegmentBuffer extends AbstractBuffer {
+
+  /**
+   * 连续个数不小于该值时保存为号段, 否则放入数组号段. 一个号段对象约占16个long
+   */
+  static final int MIN_RANGE_LENGTH = 16;
+
+  /**
+   * 数组号段最多保存的uid个数
+   */
+  static final int STAGE_SIZE = 64;
+
+  /**
+   * 当前正在使用的号段
+   */
+  private final AtomicReference<Segment> current;
+
+  /**
+   * 队列末尾的号段, 由添加方加锁维护
+   */
+  private Segment last;
+
+  /**
+   * 当前号段之后, 排队中的uid个数
+   */
+  private final AtomicLong queued = new PaddedAtomicLong(0);
+
+  /**
+   * 暂存的不连续uid, 加锁访问. stagedCount 供获取方无锁判断是否有暂存
+   */
+  private final long[] staged = new long[STAGE_SIZE];
+  private volatile int stagedCount;
+
+  /**
+   * @param bufferSize 最多缓存的uid个数
+   */
+  public SegmentBuffer(int bufferSize) {
+    this(bufferSize, DEFAULT_UNDER_PADDING_PERCENT, DEFAULT_UPPER_PADDING_PERCENT);
+  }
+
+  /**
+   * @param bufferSize max count of uids held by the buffer, must be positive
+   * @param paddingUnderFactor percent in (0 - 100), padding buffer will be triggered when the
+   * rest uids less than threshold
+   * @param paddingUpperFactor percent in (0 - 100) and paddingUpperFactor > paddingUnderFactor
+   */
+  public SegmentBuffer(int bufferSize, int paddingUnderFactor, int paddingUpperFactor) {
+
+    Assert.isTrue(bufferSize > 0L, "SegmentBuffer size must be positive");
+    Assert.isTrue(paddingUpperFactor > paddingUnderFactor,
+        "paddingUpperFactor  must more than paddingUnderFactor");
+    Assert.isTrue(paddingUnderFactor > 0 && paddingUnderFactor < 100 && paddingUpperFactor > 0
+        && paddingUpperFactor < 100, "factor must 0 - 100");
+
+    this.bufferSize = bufferSize;
+    this.last = new Segment(0, null, 0);
+    this.current = new AtomicReference<>(last);
+
+    this.paddingUnderThreshold = (int) ((long) bufferSize * paddingUnderFactor / 100);
+    this.paddingUpperThreshold = (int) ((long) bufferSize * paddingUpperFactor / 100);
+  }
+
+  /**
+   * 添加单个uid, 暂存后与其他uid一起保存.
+   */
+  @Override
+  public synchronized boolean put(long uid) {
+    if (size() >= bufferSize) {
+      rejectedPutHandler.rejectPutBuffer(this, uid);
+      return false;
+    }
+    stage(uid);
+    return true;
+  }
+
+  /**
+   * 批量添加, 数组中较长的连续uid合并为一个号段.
+   */
+  @Override
+  public synchronized int putBatch(long[] uids, int offset, int length) {
+    int count = (int) Math.max(0, Math.min(length, bufferSize - size()));
+    int runStart = 0;
+    for (int i = 1; i <= count; i++) {
+      if (i == count || uids[offset + i] != uids[offset + i - 1] + 1) {
+        if (i - runStart >= MIN_RANGE_LENGTH) {
+          appendRange(uids[offset + runStart], i - runStart);
+        } else {
+          for (int j = runStart; j < i; j++) {
+            stage(uids[offset + j]);
+          }
+        }
+        runStart = i;
+      }
+    }
+
+    if (count < length) {
+      rejectedPutHandler.rejectPutBuffer(this, uids[offset + count]);
+    }
+    return count;
+  }
+
+  @Override
+  public synchronized int putBatch(LongRange range) {
+    int count = (int) Math.max(0, Math.min(range.getLength(), bufferSize - size()));
+    if (count >= MIN_RANGE_LENGTH) {
+      appendRange(range.getStart(), count);
+    } else {
+      for (int i = 0; i < count; i++) {
+        stage(range.get(i));
+      }
+    }
+
+    if (count < range.getLength()) {
+      rejectedPutHandler.rejectPutBuffer(this, range.get(count));
+    }
+    return count;
+  }
+
+  /**
+   * 追加号段 [start, start + length), 先发布暂存的uid以保持顺序. 调用方需持有锁.
+   */
+  private void appendRange(long start, int length) {
+    flushStaged();
+    append(new Segment(start, null, length));
+  }
+
+  /**
+   * 暂存一个uid, 暂存满时发布. 调用方需持有锁.
+   */
+  private void stage(long uid) {
+    int count = stagedCount;
+    staged[count] = uid;
+    stagedCount = count + 1;
+    if (count + 1 == STAGE_SIZE) {
+      flushStaged();
+    }
+  }
+
+  /**
+   * 将暂存的uid发布为一个号段, 全部连续时为区间号段, 否则为数组号段. 调用方需持有锁.
+   */
+  private void flushStaged() {
+    int count = stagedCount;
+    if (count == 0) {
+      return;
+    }
+    boolean contiguous = true;
+    for (int i = 1; i < count && contiguous; i++) {
+      contiguous = staged[i] == staged[i - 1] + 1;
+    }
+    Segment segment = contiguous ? new Segment(staged[0], null, count)
+        : new Segment(0, Arrays.copyOf(staged, count), count);
+    // publish before the staged count drops, so size() never misses these uids
+    append(segment);
+    stagedCount = 0;
+  }
+
+  /**
+   * 在队列末尾追加号段, 调用方需持有锁.
+   */
+  private void append(Segment segment) {
+    // count first, so that a consumer switching to this segment never makes queued negative
+    queued.addAndGet(segment.length);
+    last.successor = segment;
+    last = segment;
+  }
+
+  /**
+   * 获取uid, 在当前号段上 getAndIncrement, 号段用完后切换至下一号段.
+   *
+   * @return UID, or {@link #NO_UID} if the buffer is empty
+   */
+  @Override
+  protected long poll() {
+    for (; ; ) {
+      Segment segment = current.get();
+      long index = segment.next.getAndIncrement();
+      if (index < segment.length) {
+        // 判断是否达到低水位
+        if (segment.length - index - 1 + queued.get() + stagedCount < paddingUnderThreshold) {
+          bufferPaddingExecutor.asyncPadding();
+        }
+        return segment.get(index);
+      }
+
+      if (!advance(segment)) {
+        return NO_UID;
+      }
+    }
+  }
+
+  /**
+   * 批量获取, 每个号段只做一次 getAndAdd.
+   */
+  @Override
+  public int take(long[] dest, int count) {
+    int limit = Math.min(count, dest.length);
+    int taken = 0;
+    while (taken < limit) {
+      Segment segment = current.get();
+      long first = segment.next.getAndAdd(limit - taken);
+      if (first < segment.length) {
+        int claimed = (int) Math.min(limit - taken, segment.length - first);
+        for (int i = 0; i < claimed; i++) {
+          dest[taken + i] = segment.get(first + i);
+        }
+        taken += claimed;
+      } else if (!advance(segment)) {
+        break;
+      }
+    }
+
+    // 判断是否达到低水位
+    if (size() < paddingUnderThreshold) {
+      bufferPaddingExecutor.asyncPadding();
+    }
+    return taken;
+  }
+
+  /**
+   * 当前号段已用完, 切换至下一号段. 没有下一号段时发布暂存的uid.
+   *
+   * @return false if there is no more segment
+   */
+  private boolean advance(Segment segment) {
+    Segment successor = segment.successor;
+    if (successor == null) {
+      if (stagedCount == 0) {
+        // a flush links the segment before it clears the staged count
+        return segment.successor != null;
+      }
+      synchronized (this) {
+        flushStaged();
+      }
+      return true;
+    }
+    if (current.compareAndSet(segment, successor)) {
+      queued.addAndGet(-successor.length);
+    }
+    return true;
+  }
+
+  /**
+   * 获取需要添加的UID数量.
+   *
+   * @return count
+   */
+  @Override
+  public int paddingNums() {
+    return (int) Math.max(0, bufferSize - size());
+  }
+
+  /**
+   * 判断是否达到高水位上限.
+   *
+   * @return boolean
+   */
+  @Override
+  public boolean isNeedPadding() {
+    return size() >= paddingUpperThreshold;
+  }
+
+  /**
+   * Count of uids which have been put but not taken yet
+   */
+  public long size() {
+    Segment segment = current.get();
+    return Math.max(0, segment.length - segment.next.get()) + queued.get() + stagedCount;
+  }
+
+  @Override
+  public String toString() {
+    Segment segment = current.get();
+    StringBuilder builder = new StringBuilder();
+    builder.append("SegmentBuffer [bufferSize=").append(bufferSize).append(", current=")
+        .append(segment.next.get()).append("/").append(segment.length)
+        .append(", queued=").append(queued)
+        .append(", staged=").append(stagedCount)
+        .append(", paddingUnderThreshold=").append(paddingUnderThreshold)
+        .append(", paddingUpperThreshold=").append(paddingUpperThreshold).append("]");
+
+    return builder.toString();
+  }
+
+  /**
+   * 号段: uids 为 null 时为区间 [start, start + length), 否则为数组中的uid. next 为下一个可取的下标
+   */
+  private static final class Segment {
+
+    private final long start;
+    private final long[] uids;
+    private final int length;
+    private final AtomicLong next = new PaddedAtomicLong(0);
+    private volatile Segment successor;
+
+    Segment(long start, long[] uids, int length) {
+      this.start = start;
+      this.uids = uids;
+      this.length = length;
+    }
+
+    long get(long index) {
+      return uids == null ? start + index : uids[(int) index];
+    }
+  }
+}
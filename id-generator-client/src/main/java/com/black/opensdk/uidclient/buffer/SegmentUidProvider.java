@@ -0,0 +1,43 @@
+package com.black.opensdk.uidclient.buffer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 号段模式的 uid provider, 上游每次下发一段连续的uid.
+ *
+ * {@link BufferPaddingExecutor} ingests the segment with
+ * {@link Buffer#putBatch(LongRange)}, no uid is boxed on the padding path.
+ *
+ * @author chen
+ */
+public interface SegmentUidProvider extends UidProvider {
+
+  /**
+   * Provides a segment of continuous UIDs
+   *
+   * @param count 批量获取的数量
+   * @return 号段, 长度可以小于count
+   */
+  LongRange provideSegment(int count);
+
+  @Override
+  default long[] provideArray(int count) {
+    return provideSegment(count).toArray();
+  }
+
+  @Override
+  default List<Long> provide(int count) {
+    LongRange range = provideSegment(count);
+    List<Long> uids = new ArrayList<>(range.getLength());
+    for (int i = 0; i < range.getLength(); i++) {
+      uids.add(range.get(i));
+    }
+    return uids;
+  }
+
+  @Override
+  default Long provide() {
+    return provideSegment(1).getStart();
+  }
+}
@@ -0,0 +1,187 @@
+package com.black.opensdk.uidclient.buffer;
+
+import com.black.opensdk.uidclient.util.NamingThreadFactory;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import org.springframework.util.Assert;
+
+/**
+ * 多个缓冲区共享的添加线程池, 线程数固定, 优先添加最接近耗尽的缓冲区.
+ *
+ * Each {@link BufferPaddingExecutor} created with this scheduler owns no thread: its padding
+ * requests are queued here (at most once per executor) and a fixed number of workers serve them,
+ * always picking the queued buffer with the shortest estimated time-to-empty first (from its
+ * recent take rate). Buffers without recent takes are ordered by their empty ratio after those.
+ * One schedule thread runs the periodic padding of all registered executors.
+ *
+ * @author chen
+ */
+public class SharedPaddingScheduler {
+
+  private static final String WORKER_NAME = "SharedPadding-Worker";
+  private static final String SCHEDULE_NAME = "SharedPadding-Schedule";
+
+  /**
+   * 默认添加线程数
+   */
+  public static final int DEFAULT_WORKERS = 2;
+
+  private final ExecutorService paddingWorkers;
+  private final ScheduledExecutorService paddingSchedule;
+
+  /**
+   * 等待添加的执行器, 每个执行器最多排队一次
+   */
+  private final Set<BufferPaddingExecutor> pending = new LinkedHashSet<>();
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition notEmpty = lock.newCondition();
+
+  /**
+   * 已注册的定时添加任务
+   */
+  private final Map<BufferPaddingExecutor, ScheduledFuture<?>> schedules =
+      new ConcurrentHashMap<>();
+
+  private volatile boolean shutdown;
+
+  public SharedPaddingScheduler() {
+    this(DEFAULT_WORKERS);
+  }
+
+  /**
+   * @param workers count of padding threads shared by all buffers
+   */
+  public SharedPaddingScheduler(int workers) {
+    Assert.isTrue(workers > 0, "Padding workers must positive!");
+    this.paddingWorkers = Executors
+        .newFixedThreadPool(workers, new NamingThreadFactory(WORKER_NAME));
+    this.paddingSchedule = Executors
+        .newSingleThreadScheduledExecutor(new NamingThreadFactory(SCHEDULE_NAME));
+    for (int i = 0; i < workers; i++) {
+      paddingWorkers.execute(this::runWorker);
+    }
+  }
+
+  /**
+   * 请求添加, 已在排队中时合并
+   *
+   * @return false if the scheduler is shut down
+   */
+  public boolean requestPadding(BufferPaddingExecutor executor) {
+    if (shutdown) {
+      return false;
+    }
+    lock.lock();
+    try {
+      if (pending.add(executor)) {
+        notEmpty.signal();
+      }
+      return true;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * 注册定时添加
+   *
+   * @param interval schedule interval, unit as seconds
+   */
+  public void register(BufferPaddingExecutor executor, long interval) {
+    ScheduledFuture<?> future = paddingSchedule
+        .scheduleWithFixedDelay(() -> requestPadding(executor), interval, interval,
+            TimeUnit.SECONDS);
+    ScheduledFuture<?> previous = schedules.put(executor, future);
+    if (previous != null) {
+      previous.cancel(false);
+    }
+  }
+
+  /**
+   * 取消定时添加和排队中的添加请求, 正在执行的添加不受影响
+   */
+  public void unregister(BufferPaddingExecutor executor) {
+    ScheduledFuture<?> future = schedules.remove(executor);
+    if (future != null) {
+      future.cancel(false);
+    }
+    lock.lock();
+    try {
+      pending.remove(executor);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Shutdown workers and schedule
+   */
+  public void shutdown() {
+    shutdown = true;
+    paddingSchedule.shutdownNow();
+    paddingWorkers.shutdownNow();
+  }
+
+  private void runWorker() {
+    while (!shutdown) {
+      BufferPaddingExecutor executor;
+      try {
+        executor = takeMostUrgent();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      }
+      executor.runRequestedPadding();
+    }
+  }
+
+  /**
+   * 取出排队中耗尽时间最短的执行器, 相同时取空闲比例最大的. 排队数为命名空间数量级, 每次线性扫描
+   */
+  private BufferPaddingExecutor takeMostUrgent() throws InterruptedException {
+    lock.lockInterruptibly();
+    try {
+      while (pending.isEmpty()) {
+        notEmpty.await();
+      }
+      BufferPaddingExecutor mostUrgent = null;
+      long minTimeToEmpty = Long.MAX_VALUE;
+      double maxRatio = -1D;
+      for (BufferPaddingExecutor executor : pending) {
+        long timeToEmpty = executor.timeToEmptyNanos();
+        double ratio = executor.emptyRatio();
+        if (mostUrgent == null || timeToEmpty < minTimeToEmpty
+            || (timeToEmpty == minTimeToEmpty && ratio > maxRatio)) {
+          minTimeToEmpty = timeToEmpty;
+          maxRatio = ratio;
+          mostUrgent = executor;
+        }
+      }
+      pending.remove(mostUrgent);
+      return mostUrgent;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Getters
+   */
+  public int getPendingCount() {
+    lock.lock();
+    try {
+      return pending.size();
+    } finally {
+      lock.unlock();
+    }
+  }
+}
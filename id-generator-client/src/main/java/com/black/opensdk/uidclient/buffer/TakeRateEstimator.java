@@ -0,0 +1,87 @@
+package com.black.opensdk.uidclient.buffer;
+
+/**
+ * 估算缓冲区的获取速率和耗尽时间.
+ *
+ * The buffer does not count its takes (it would add a shared write to every take), so the taken
+ * count between two samples is derived from the padding side: {@code taken = padded delta - size
+ * delta}. The rate is an exponentially weighted moving average with a time constant of
+ * {@link #DECAY_NANOS}, so irregular sampling (on every padding request) is weighted correctly.
+ * Samples are only taken on padding requests, so the takes since the last sample are attributed
+ * to at most the last {@link #MAX_SAMPLE_NANOS}: after an idle gap the rate is decayed over the
+ * gap, and a burst is not averaged over it.
+ *
+ * @author chen
+ */
+class TakeRateEstimator {
+
+  /**
+   * 衰减时间常数1秒, 两次采样间隔小于1毫秒时不更新, 大于100毫秒时只按最近100毫秒计算速率
+   */
+  static final long DECAY_NANOS = 1_000_000_000L;
+  static final long MIN_SAMPLE_NANOS = 1_000_000L;
+  static final long MAX_SAMPLE_NANOS = 100_000_000L;
+
+  private long lastNanos;
+  private long lastPadded;
+  private long lastSize;
+  private boolean sampled;
+
+  /**
+   * 每纳秒获取的uid个数
+   */
+  private double ratePerNano;
+
+  /**
+   * 采样一次
+   *
+   * @param padded count of uids padded into the buffer so far
+   * @param size count of uids in the buffer now
+   */
+  synchronized void sample(long padded, long size) {
+    long now = System.nanoTime();
+    if (!sampled) {
+      sampled = true;
+    } else {
+      long elapsed = now - lastNanos;
+      if (elapsed < MIN_SAMPLE_NANOS) {
+        return;
+      }
+      long taken = Math.max(0, (padded - lastPadded) - (size - lastSize));
+      if (elapsed > MAX_SAMPLE_NANOS) {
+        // idle before the takes, decay only
+        ratePerNano *= Math.exp(-(double) (elapsed - MAX_SAMPLE_NANOS) / DECAY_NANOS);
+        elapsed = MAX_SAMPLE_NANOS;
+      }
+      double alpha = 1D - Math.exp(-(double) elapsed / DECAY_NANOS);
+      ratePerNano += alpha * ((double) taken / elapsed - ratePerNano);
+    }
+    lastNanos = now;
+    lastPadded = padded;
+    lastSize = size;
+  }
+
+  /**
+   * 按当前速率估算耗尽时间
+   *
+   * @return nanos until size uids are taken, 0 if already empty, Long.MAX_VALUE if there is no
+   * take
+   */
+  synchronized long timeToEmptyNanos(long size) {
+    if (size <= 0) {
+      // an empty buffer is the most urgent, whatever the rate
+      return 0L;
+    }
+    if (ratePerNano <= 0D) {
+      return Long.MAX_VALUE;
+    }
+    return (long) Math.min(Long.MAX_VALUE, size / ratePerNano);
+  }
+
+  /**
+   * 每秒获取的uid个数
+   */
+  synchronized double ratePerSecond() {
+    return ratePerNano * 1_000_000_000D;
+  }
+}
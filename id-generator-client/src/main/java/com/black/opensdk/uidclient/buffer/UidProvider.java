@@ -18,6 +18,22 @@ public interface UidProvider {
      */
     List<Long> provide(int count);
 
+    /**
+     * Provides UID batch as primitive array
+     *
+     * 默认通过 provide(count) 拆箱, 实现方可以直接返回 long[] 避免装箱.
+     * @param count 批量获取的数量
+     * @return
+     */
+    default long[] provideArray(int count) {
+        List<Long> uidList = provide(count);
+        long[] uids = new long[uidList.size()];
+        for (int i = 0; i < uids.length; i++) {
+            uids[i] = uidList.get(i);
+        }
+        return uids;
+    }
+
     /**
      * Provides UID one by one
      * 非正常情况下(uid 补充速度跟不上获取速度) ,需直接调用provide()获取.
@@ -4,11 +4,29 @@ package com.black.opensdk.uidclient.client;
 
 import com.black.opensdk.uidclient.exception.UidGenerateException;
 import com.black.opensdk.uidclient.buffer.AbstractBuffer;
+import com.black.opensdk.uidclient.buffer.AdaptivePaddingPolicy;
+import com.black.opensdk.uidclient.buffer.ArrayBuffer;
+import com.black.opensdk.uidclient.buffer.AsyncUidProvider;
 import com.black.opensdk.uidclient.buffer.BufferPaddingExecutor;
-import com.black.opensdk.uidclient.buffer.LinkedBuffer;
+import com.black.opensdk.uidclient.buffer.DoubleBuffer;
+import com.black.opensdk.uidclient.buffer.MpmcRingBuffer;
+import com.black.opensdk.uidclient.buffer.OffHeapRingBuffer;
 import com.black.opensdk.uidclient.buffer.RejectedPutBufferHandler;
 import com.black.opensdk.uidclient.buffer.RejectedTakeBufferHandler;
+import com.black.opensdk.uidclient.buffer.SegmentBuffer;
+import com.black.opensdk.uidclient.buffer.SharedPaddingScheduler;
 import com.black.opensdk.uidclient.buffer.UidProvider;
+import com.black.opensdk.uidclient.metrics.MetricsReporter;
+import com.black.opensdk.uidclient.metrics.UidMetrics;
+import com.black.opensdk.uidclient.persist.MappedUidJournal;
+import com.black.opensdk.uidclient.persist.UidSnapshotFile;
+import com.black.opensdk.uidclient.util.NamingThreadFactory;
+import com.black.opensdk.uidclient.util.RateLimitedLogger;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.util.Assert;
@@ -21,17 +39,124 @@ public class CachedUidGeneratorClient implements UidGenerator {
 
   public static final Logger LOGGER = LoggerFactory.getLogger(CachedUidGeneratorClient.class);
 
+  /**
+   * 默认每分钟上报一次指标
+   */
+  public static final long DEFAULT_METRICS_REPORT_INTERVAL = 60L;
+
+  private static final String METRICS_REPORTER_NAME = "UidMetrics-Reporter";
+
+  /**
+   * 销毁时等待添加结束的最长时间, 单位秒
+   */
+  private static final long PADDING_TERMINATION_TIMEOUT = 10L;
+
+  /**
+   * 降级日志限流, 缓冲区为空时每次获取都会降级
+   */
+  private static final RateLimitedLogger FALLBACK_LOGGER = new RateLimitedLogger(LOGGER);
+
   /**
    * 默认 4096,根据业务需求调整,但是必须是2的倍数.
    */
   private int initBufferSize = 1 << 12;
 
-  private int paddingUnderFactor = AbstractBuffer.DEFAULT_UPPER_PADDING_PERCENT;
+  private int paddingUnderFactor = AbstractBuffer.DEFAULT_UNDER_PADDING_PERCENT;
 
   private int paddingUpperFactor = AbstractBuffer.DEFAULT_UPPER_PADDING_PERCENT;
 
   private Long scheduleInterval;
 
+  /**
+   * 是否根据获取速率和 provider 耗时自动调整水位, 见 {@link AdaptivePaddingPolicy}
+   */
+  private boolean adaptivePadding;
+
+  /**
+   * 添加时同时向 provider 获取的最大请求数, 默认1即串行获取.
+   */
+  private int paddingConcurrency = 1;
+
+  /**
+   * 线程本地缓存的uid个数, 0 表示不使用线程本地缓存. 关闭时各线程缓存中剩余的uid一并保存到快照.
+   */
+  private int localCacheSize;
+
+  /**
+   * 缓冲区为空时等待补充的最长时间 Unit as milliseconds, null 表示不等待直接调用 provider.
+   * 添加请求被拒绝时(添加线程或共享添加调度器已关闭)不等待, 直接调用 provider.
+   */
+  private Long takeTimeout;
+
+  /**
+   * 直接调用 provider 时的请求合并窗口 Unit as microseconds, null 表示不合并.
+   */
+  private Long coalescingWindow;
+
+  /**
+   * 是否使用双缓冲区, 添加线程写入 standby 而不与获取线程竞争, 见 {@link DoubleBuffer}
+   */
+  private boolean doubleBuffered;
+
+  /**
+   * 是否将uid缓存在堆外内存, 缓存千万级uid时使用, 见 {@link OffHeapRingBuffer}. 不能与 doubleBuffered
+   * 同时使用
+   */
+  private boolean offHeap;
+
+  /**
+   * 是否按号段缓存uid, 上游按号段下发uid时占用内存与 bufferSize 无关, 见 {@link SegmentBuffer}.
+   * 不能与 doubleBuffered 或 offHeap 同时使用
+   */
+  private boolean segmented;
+
+  /**
+   * 共享添加线程池, 设置后不创建自己的添加线程, 见 {@link MultiNamespaceUidClient}
+   */
+  private SharedPaddingScheduler paddingScheduler;
+
+  /**
+   * 是否记录运行指标并注册至 JMX, 见 {@link UidMetrics}
+   */
+  private boolean metricsEnabled;
+
+  /**
+   * JMX 中的名称, null 时使用实例的 identityHashCode
+   */
+  private String metricsName;
+
+  /**
+   * 指标上报, 设置后自动开启指标
+   */
+  private MetricsReporter metricsReporter;
+
+  /**
+   * 指标上报间隔 Unit as seconds
+   */
+  private long metricsReportInterval = DEFAULT_METRICS_REPORT_INTERVAL;
+
+  /**
+   * 未使用uid的快照文件路径, 关闭时保存, 启动时加载, null 表示不使用, 见 {@link UidSnapshotFile}
+   */
+  private String snapshotPath;
+
+  /**
+   * 添加/获取日志文件路径, 崩溃后恢复未被获取的uid, null 表示不使用, 见 {@link MappedUidJournal}.
+   * 只支持 {@link MpmcRingBuffer} 及其子类(默认的 {@link ArrayBuffer}).
+   */
+  private String journalPath;
+
+  /**
+   * 可超出已落盘获取进度的uid个数, 即崩溃后最多跳过的uid个数. 越小则越多获取需要自己落盘,
+   * null 表示使用 {@link MappedUidJournal#defaultWindow(int)}
+   */
+  private Integer journalWindow;
+
+  /**
+   * 日志后台落盘间隔 Unit as milliseconds
+   */
+  private long journalSyncInterval = MappedUidJournal.DEFAULT_SYNC_INTERVAL_MILLIS;
+
 
   private RejectedPutBufferHandler rejectedPutBufferHandler;
 
@@ -40,37 +165,144 @@ public class CachedUidGeneratorClient implements UidGenerator {
   private UidProvider uidProvider;
 
   /**
-   * 缓冲区,默认实现为LinkedBuffer.
+   * 异步 provider, 设置后异步添加不阻塞添加线程; 初始化和直接获取仍使用 uidProvider.
+   */
+  private AsyncUidProvider asyncUidProvider;
+
+  /**
+   * 缓冲区,默认实现为ArrayBuffer.
    */
   private AbstractBuffer abstractBuffer;
 
   private BufferPaddingExecutor bufferPaddingExecutor;
 
+  private ThreadLocalUidCache localUidCache;
+
+  private CoalescingUidFallback coalescingFallback;
+
+  private UidMetrics metrics;
+
+  private ScheduledExecutorService metricsReportSchedule;
+
+  private UidSnapshotFile snapshotFile;
+
+  private MappedUidJournal journal;
+
   public void init() throws Exception {
     this.initBuffer();
     LOGGER.info("Initialized RingBuffer successfully.");
   }
 
   /**
-   * 当第三方id提供者一直出现异常时,会抛出 {@link UidGenerateException}
+   * 当第三方id提供者一直出现异常时,会抛出 {@link UidGenerateException}.
+   * 缓冲区为空且添加请求被拒绝时, 不等待 takeTimeout 而直接调用 provider.
    */
   @Override
   public long getUID() {
+    boolean sampled = metrics != null && metrics.sampleTake();
+    long startNanos = sampled ? System.nanoTime() : 0L;
     try {
-      return abstractBuffer.take();
+      long uid = takeFromBuffer();
+      if (metrics != null) {
+        metrics.recordTakes(1);
+        if (sampled) {
+          metrics.recordTakeLatency(System.nanoTime() - startNanos);
+        }
+      }
+      return uid;
     } catch (Exception e) {
-      LOGGER.warn("Get uid from buffer warning !!,Start Get Uid Direct By Provider", e);
+      FALLBACK_LOGGER.warn("Get uid from buffer warning !!,Start Get Uid Direct By Provider", e);
+      if (metrics != null) {
+        metrics.recordFallback();
+      }
       try {
-        return uidProvider.provide();
+        return coalescingFallback != null ? coalescingFallback.provide() : uidProvider.provide();
       } catch (Exception e1) {
+        if (metrics != null) {
+          metrics.recordFallbackError();
+        }
         LOGGER.error("Get uid from buffer Error", e);
-        throw new UidGenerateException("Get Uid Error!!");
+        throw new UidGenerateException("Get Uid Error!!", e1);
+      }
+    }
+  }
+
+  /**
+   * 从缓冲区获取, 配置了 takeTimeout 时缓冲区为空会先等待补充.
+   */
+  private long takeFromBuffer() {
+    if (localUidCache != null) {
+      return localUidCache.take();
+    }
+    if (takeTimeout != null) {
+      return abstractBuffer.take(takeTimeout, TimeUnit.MILLISECONDS);
+    }
+    return abstractBuffer.take();
+  }
+
+  @Override
+  public long[] getUIDs(int count) {
+    Assert.isTrue(count >= 0, "Count must not be negative!");
+    long[] uids = new long[count];
+    fill(uids);
+    return uids;
+  }
+
+  /**
+   * 先从缓冲区批量获取, 不足部分通过 {@link UidProvider#provide(int)} 一次补齐.
+   * 当第三方id提供者出现异常时,会抛出 {@link UidGenerateException}
+   */
+  @Override
+  public void fill(long[] dest) {
+    int taken = abstractBuffer.take(dest, dest.length);
+    if (metrics != null) {
+      metrics.recordTakes(taken);
+    }
+    if (taken == dest.length) {
+      return;
+    }
+    if (metrics != null) {
+      metrics.recordFallback();
+    }
+
+    int remaining = dest.length - taken;
+    FALLBACK_LOGGER.warn("Buffer only offers {} of {} uids,Start Get Uids Direct By Provider",
+        taken, dest.length);
+    long[] uids;
+    try {
+      uids = uidProvider.provideArray(remaining);
+    } catch (Exception e) {
+      if (metrics != null) {
+        metrics.recordFallbackError();
       }
+      LOGGER.error("Get uids from provider Error", e);
+      throw new UidGenerateException("Get Uid Error!!", e);
+    }
+    if (uids == null || uids.length < remaining) {
+      throw new UidGenerateException("Get Uid Error!! Provider offers less uids than required");
     }
+    System.arraycopy(uids, 0, dest, taken, remaining);
   }
 
   public void destroy() throws Exception {
     bufferPaddingExecutor.shutdown();
+    // no uid may be put into the buffer while it is drained into the snapshot
+    if (!bufferPaddingExecutor.awaitTermination(PADDING_TERMINATION_TIMEOUT, TimeUnit.SECONDS)) {
+      LOGGER.warn("Padding did not stop in {} seconds, uids padded later are discarded",
+          PADDING_TERMINATION_TIMEOUT);
+    }
+    if (snapshotFile != null) {
+      saveSnapshot();
+    }
+    if (journal != null) {
+      journal.close();
+    }
+    if (metricsReportSchedule != null) {
+      metricsReportSchedule.shutdownNow();
+    }
+    if (metrics != null) {
+      metrics.unregisterMBean();
+    }
   }
 
   /**
@@ -80,8 +312,20 @@ public class CachedUidGeneratorClient implements UidGenerator {
 
     int bufferSize = initBufferSize;
 
+    Assert.isTrue(!(doubleBuffered && offHeap), "doubleBuffered and offHeap can not both be set!");
+    Assert.isTrue(!(segmented && (doubleBuffered || offHeap)),
+        "segmented can not be set with doubleBuffered or offHeap!");
     if (this.abstractBuffer == null) {
-      abstractBuffer = new LinkedBuffer(initBufferSize, paddingUnderFactor, paddingUpperFactor);
+      if (segmented) {
+        abstractBuffer = new SegmentBuffer(initBufferSize, paddingUnderFactor, paddingUpperFactor);
+      } else if (doubleBuffered) {
+        abstractBuffer = new DoubleBuffer(initBufferSize, paddingUnderFactor, paddingUpperFactor);
+      } else if (offHeap) {
+        abstractBuffer = new OffHeapRingBuffer(initBufferSize, paddingUnderFactor,
+            paddingUpperFactor);
+      } else {
+        abstractBuffer = new ArrayBuffer(initBufferSize, paddingUnderFactor, paddingUpperFactor);
+      }
     }
     LOGGER.info("Initialized ring buffer size:{}, paddingUnderFactor:{},paddingUpperFactor:{}",
         bufferSize, paddingUnderFactor, paddingUpperFactor);
@@ -91,15 +335,23 @@ public class CachedUidGeneratorClient implements UidGenerator {
 
     boolean usingSchedule = (scheduleInterval != null);
 
-    this.bufferPaddingExecutor = new BufferPaddingExecutor(abstractBuffer, uidProvider,
-        usingSchedule);
+    this.bufferPaddingExecutor = paddingScheduler != null
+        ? new BufferPaddingExecutor(abstractBuffer, uidProvider, paddingScheduler, usingSchedule)
+        : new BufferPaddingExecutor(abstractBuffer, uidProvider, usingSchedule);
 
     if (usingSchedule) {
       bufferPaddingExecutor.setScheduleInterval(scheduleInterval);
     }
+    if (adaptivePadding) {
+      bufferPaddingExecutor.setPaddingPolicy(new AdaptivePaddingPolicy());
+    }
+    bufferPaddingExecutor.setMaxInflightRequests(paddingConcurrency);
+    if (asyncUidProvider != null) {
+      bufferPaddingExecutor.setAsyncUidProvider(asyncUidProvider);
+    }
 
-    LOGGER.info("Initialized BufferPaddingExecutor. Using schedule:{}, interval:{}", usingSchedule,
-        scheduleInterval);
+    LOGGER.info("Initialized BufferPaddingExecutor. Using schedule:{}, interval:{}, adaptive:{}, "
+        + "concurrency:{}", usingSchedule, scheduleInterval, adaptivePadding, paddingConcurrency);
 
     this.abstractBuffer.setBufferPaddingExecutor(bufferPaddingExecutor);
 
@@ -109,10 +361,144 @@ public class CachedUidGeneratorClient implements UidGenerator {
     if (rejectedTakeBufferHandler != null) {
       this.abstractBuffer.setRejectedTakeHandler(rejectedTakeBufferHandler);
     }
-    bufferPaddingExecutor.paddingBuffer();
+    if (localCacheSize > 0) {
+      long takeTimeoutNanos = takeTimeout == null ? 0L : TimeUnit.MILLISECONDS.toNanos(takeTimeout);
+      this.localUidCache = new ThreadLocalUidCache(abstractBuffer, localCacheSize,
+          takeTimeoutNanos);
+      LOGGER.info("Initialized ThreadLocalUidCache. chunkSize:{}", localCacheSize);
+    }
+
+    if (coalescingWindow != null) {
+      this.coalescingFallback = new CoalescingUidFallback(uidProvider, coalescingWindow);
+      LOGGER.info("Initialized CoalescingUidFallback. window:{}us", coalescingWindow);
+    }
+
+    if (metricsEnabled || metricsReporter != null) {
+      initMetrics();
+    }
+
+    int restored = 0;
+    if (journalPath != null) {
+      restored += openJournal();
+    }
+    if (snapshotPath != null) {
+      this.snapshotFile = new UidSnapshotFile(Paths.get(snapshotPath));
+      restored += restoreSnapshot();
+    }
+
+    // 快照已加载足够的uid时不阻塞启动, 由后台补充
+    if (restored > 0 && restored >= abstractBuffer.getPaddingUnderThreshold()) {
+      bufferPaddingExecutor.asyncPadding();
+    } else {
+      bufferPaddingExecutor.paddingBuffer();
+    }
     bufferPaddingExecutor.start();
   }
 
+  /**
+   * 打开日志并恢复上次运行中未被获取的uid, 打开失败时不使用日志.
+   *
+   * @return count of recovered uids put into the buffer
+   */
+  private int openJournal() {
+    Assert.isInstanceOf(MpmcRingBuffer.class, abstractBuffer,
+        "Journal only supports MpmcRingBuffer!");
+    MpmcRingBuffer ringBuffer = (MpmcRingBuffer) abstractBuffer;
+    int window = journalWindow != null ? journalWindow
+        : MappedUidJournal.defaultWindow(ringBuffer.getBufferSize());
+    MappedUidJournal candidate = new MappedUidJournal(Paths.get(journalPath),
+        ringBuffer.getRingSize(), window, journalSyncInterval);
+
+    long[] uids;
+    try {
+      uids = candidate.open();
+    } catch (Exception e) {
+      LOGGER.error("Open uid journal {} error, start without journal", journalPath, e);
+      return 0;
+    }
+    this.journal = candidate;
+    ringBuffer.setJournal(journal);
+    journal.start(ringBuffer);
+
+    int recovered = uids.length == 0 ? 0 : abstractBuffer.putBatch(uids, 0, uids.length);
+    LOGGER.info("Initialized MappedUidJournal. window:{}, syncInterval:{}ms, recovered:{}",
+        window, journalSyncInterval, recovered);
+    return recovered;
+  }
+
+  /**
+   * 加载快照中的uid至缓冲区, 放不下的uid丢弃. 加载失败时不影响启动.
+   *
+   * @return count of uids put into the buffer
+   */
+  private int restoreSnapshot() {
+    long[] uids;
+    try {
+      uids = snapshotFile.restore();
+    } catch (Exception e) {
+      LOGGER.warn("Restore uid snapshot {} error, start without snapshot", snapshotPath, e);
+      return 0;
+    }
+    int restored = uids.length == 0 ? 0 : abstractBuffer.putBatch(uids, 0, uids.length);
+    LOGGER.info("Restored {} of {} uids from snapshot {}", restored, uids.length, snapshotPath);
+    return restored;
+  }
+
+  /**
+   * 取出线程本地缓存和缓冲区中剩余的uid并保存快照, 需在添加线程停止后调用.
+   */
+  private void saveSnapshot() {
+    long[] chunk = new long[Math.max(1, abstractBuffer.getBufferSize())];
+    long[] uids = localUidCache != null ? localUidCache.drain() : new long[0];
+    int count = uids.length;
+    int taken;
+    while ((taken = abstractBuffer.take(chunk, chunk.length)) > 0) {
+      if (count + taken > uids.length) {
+        uids = Arrays.copyOf(uids, Math.max(count + taken, uids.length << 1));
+      }
+      System.arraycopy(chunk, 0, uids, count, taken);
+      count += taken;
+    }
+
+    try {
+      snapshotFile.save(uids, count);
+      LOGGER.info("Saved {} unused uids to snapshot {}", count, snapshotPath);
+    } catch (Exception e) {
+      LOGGER.error("Save uid snapshot {} error, {} uids are discarded", snapshotPath, count, e);
+    }
+  }
+
+  /**
+   * Initialize UidMetrics, rejections are counted by wrapping the handlers of the buffer
+   */
+  private void initMetrics() {
+    this.metrics = new UidMetrics();
+    abstractBuffer.setRejectedPutHandler(
+        metrics.countingPutHandler(abstractBuffer.getRejectedPutHandler()));
+    abstractBuffer.setRejectedTakeHandler(
+        metrics.countingTakeHandler(abstractBuffer.getRejectedTakeHandler()));
+    bufferPaddingExecutor.setMetrics(metrics);
+    metrics.registerMBean(metricsName != null ? metricsName
+        : Integer.toHexString(System.identityHashCode(this)));
+
+    if (metricsReporter != null) {
+      metricsReportSchedule = Executors
+          .newSingleThreadScheduledExecutor(new NamingThreadFactory(METRICS_REPORTER_NAME, true));
+      metricsReportSchedule.scheduleWithFixedDelay(this::reportMetrics, metricsReportInterval,
+          metricsReportInterval, TimeUnit.SECONDS);
+    }
+    LOGGER.info("Initialized UidMetrics. reporter:{}, interval:{}s", metricsReporter,
+        metricsReportInterval);
+  }
+
+  private void reportMetrics() {
+    try {
+      metricsReporter.report(metrics.snapshot());
+    } catch (Exception e) {
+      LOGGER.error("Report uid metrics Error", e);
+    }
+  }
+
 
   /**
    * getter and setter
@@ -133,11 +519,90 @@ public class CachedUidGeneratorClient implements UidGenerator {
     return scheduleInterval;
   }
 
+  public boolean isAdaptivePadding() {
+    return adaptivePadding;
+  }
+
+  public int getPaddingConcurrency() {
+    return paddingConcurrency;
+  }
+
+
+  public int getLocalCacheSize() {
+    return localCacheSize;
+  }
+
+  public Long getTakeTimeout() {
+    return takeTimeout;
+  }
+
+  public Long getCoalescingWindow() {
+    return coalescingWindow;
+  }
+
+  public boolean isDoubleBuffered() {
+    return doubleBuffered;
+  }
+
+  public boolean isOffHeap() {
+    return offHeap;
+  }
+
+  public boolean isSegmented() {
+    return segmented;
+  }
+
+  public SharedPaddingScheduler getPaddingScheduler() {
+    return paddingScheduler;
+  }
+
+  public boolean isMetricsEnabled() {
+    return metricsEnabled;
+  }
+
+  public String getMetricsName() {
+    return metricsName;
+  }
+
+  public MetricsReporter getMetricsReporter() {
+    return metricsReporter;
+  }
+
+  public long getMetricsReportInterval() {
+    return metricsReportInterval;
+  }
+
+  /**
+   * 运行指标, 未开启时为 null
+   */
+  public UidMetrics getMetrics() {
+    return metrics;
+  }
+
+  public String getSnapshotPath() {
+    return snapshotPath;
+  }
+
+  public String getJournalPath() {
+    return journalPath;
+  }
+
+  public Integer getJournalWindow() {
+    return journalWindow;
+  }
+
+  public long getJournalSyncInterval() {
+    return journalSyncInterval;
+  }
 
   public UidProvider getUidProvider() {
     return uidProvider;
   }
 
+  public AsyncUidProvider getAsyncUidProvider() {
+    return asyncUidProvider;
+  }
+
   public AbstractBuffer getAbstractBuffer() {
     return abstractBuffer;
   }
@@ -162,6 +627,82 @@ public class CachedUidGeneratorClient implements UidGenerator {
     this.scheduleInterval = scheduleInterval;
   }
 
+  public void setAdaptivePadding(boolean adaptivePadding) {
+    this.adaptivePadding = adaptivePadding;
+  }
+
+  public void setPaddingConcurrency(int paddingConcurrency) {
+    Assert.isTrue(paddingConcurrency > 0, "Padding concurrency must positive!");
+    this.paddingConcurrency = paddingConcurrency;
+  }
+
+  public void setLocalCacheSize(int localCacheSize) {
+    Assert.isTrue(localCacheSize >= 0, "Local cache size must not be negative!");
+    this.localCacheSize = localCacheSize;
+  }
+
+  public void setTakeTimeout(Long takeTimeout) {
+    Assert.isTrue(takeTimeout == null || takeTimeout > 0, "Take timeout must positive!");
+    this.takeTimeout = takeTimeout;
+  }
+
+  public void setCoalescingWindow(Long coalescingWindow) {
+    Assert.isTrue(coalescingWindow == null || coalescingWindow >= 0,
+        "Coalescing window must not be negative!");
+    this.coalescingWindow = coalescingWindow;
+  }
+
+  public void setDoubleBuffered(boolean doubleBuffered) {
+    this.doubleBuffered = doubleBuffered;
+  }
+
+  public void setOffHeap(boolean offHeap) {
+    this.offHeap = offHeap;
+  }
+
+  public void setSegmented(boolean segmented) {
+    this.segmented = segmented;
+  }
+
+  public void setPaddingScheduler(SharedPaddingScheduler paddingScheduler) {
+    this.paddingScheduler = paddingScheduler;
+  }
+
+  public void setMetricsEnabled(boolean metricsEnabled) {
+    this.metricsEnabled = metricsEnabled;
+  }
+
+  public void setMetricsName(String metricsName) {
+    this.metricsName = metricsName;
+  }
+
+  public void setMetricsReporter(MetricsReporter metricsReporter) {
+    this.metricsReporter = metricsReporter;
+  }
+
+  public void setMetricsReportInterval(long metricsReportInterval) {
+    Assert.isTrue(metricsReportInterval > 0, "Metrics report interval must positive!");
+    this.metricsReportInterval = metricsReportInterval;
+  }
+
+  public void setSnapshotPath(String snapshotPath) {
+    this.snapshotPath = snapshotPath;
+  }
+
+  public void setJournalPath(String journalPath) {
+    this.journalPath = journalPath;
+  }
+
+  public void setJournalWindow(Integer journalWindow) {
+    Assert.isTrue(journalWindow == null || journalWindow > 0, "Journal window must positive!");
+    this.journalWindow = journalWindow;
+  }
+
+  public void setJournalSyncInterval(long journalSyncInterval) {
+    Assert.isTrue(journalSyncInterval > 0, "Journal sync interval must positive!");
+    this.journalSyncInterval = journalSyncInterval;
+  }
+
   public void setRejectedPutBufferHandler(RejectedPutBufferHandler rejectedPutBufferHandler) {
     this.rejectedPutBufferHandler = rejectedPutBufferHandler;
   }
@@ -173,4 +714,8 @@ public class CachedUidGeneratorClient implements UidGenerator {
   public void setUidProvider(UidProvider uidProvider) {
     this.uidProvider = uidProvider;
   }
+
+  public void setAsyncUidProvider(AsyncUidProvider asyncUidProvider) {
+    this.asyncUidProvider = asyncUidProvider;
+  }
 }
@@ -0,0 +1,181 @@
+package com.black.opensdk.uidclient.client;
+
+import com.black.opensdk.uidclient.buffer.UidProvider;
+import com.black.opensdk.uidclient.exception.UidGenerateException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+import org.springframework.util.Assert;
+
+/**
+ * 合并直接获取uid的请求: 缓冲区为空时, 并发线程的单个获取请求在一个短窗口内合并为一次
+ * {@link UidProvider#provideArray(int)} 批量请求, 结果分发给所有等待线程.
+ *
+ * The first waiting thread becomes the leader: it waits for the window, drains all waiters and
+ * calls the provider once. Other threads park until their uid is set.
+ *
+ * @author chen
+ */
+public class CoalescingUidFallback {
+
+  private final UidProvider uidProvider;
+
+  /**
+   * 合并窗口 Unit as nanoseconds
+   */
+  private final long windowNanos;
+
+  /**
+   * 非 leader 线程的最长挂起时间, 之后重新检查是否需要成为 leader
+   */
+  private final long followerParkNanos;
+
+  private final ConcurrentLinkedQueue<Waiter> waiters = new ConcurrentLinkedQueue<>();
+
+  private final AtomicBoolean leader = new AtomicBoolean(false);
+
+  /**
+   * @param uidProvider {@link UidProvider}
+   * @param windowMicros 合并窗口, 单位微秒, 0 表示不等待只合并已到达的请求
+   */
+  public CoalescingUidFallback(UidProvider uidProvider, long windowMicros) {
+    Assert.notNull(uidProvider, "Provider Can Not Be Null!");
+    Assert.isTrue(windowMicros >= 0, "Coalescing window must not be negative");
+    this.uidProvider = uidProvider;
+    this.windowNanos = TimeUnit.MICROSECONDS.toNanos(windowMicros);
+    this.followerParkNanos = Math.max(windowNanos, TimeUnit.MILLISECONDS.toNanos(1));
+  }
+
+  /**
+   * 获取一个uid, 与并发请求合并后调用 provider.
+   *
+   * 等待中被中断时, 请求尚未被 leader 取出则放弃并抛出异常, 已取出则继续等待结果, 返回时保留中断标志.
+   *
+   * @return UID
+   * @throws RuntimeException provider 的异常, 或 provider 返回的uid个数不足
+   */
+  public long provide() {
+    Waiter waiter = new Waiter(Thread.currentThread());
+    waiters.offer(waiter);
+    boolean interrupted = false;
+
+    try {
+      for (; ; ) {
+        if (waiter.done) {
+          return waiter.result();
+        }
+
+        if (leader.compareAndSet(false, true)) {
+          try {
+            if (!waiter.done) {
+              if (windowNanos > 0) {
+                LockSupport.parkNanos(this, windowNanos);
+              }
+              dispatch();
+            }
+          } finally {
+            leader.set(false);
+          }
+          // hand over leadership to requests arrived after dispatch
+          Waiter next = waiters.peek();
+          if (next != null) {
+            LockSupport.unpark(next.thread);
+          }
+          continue;
+        }
+
+        // parkNanos returns at once while the interrupt flag is set, clear it to not spin
+        if (Thread.interrupted()) {
+          interrupted = true;
+          if (waiters.remove(waiter)) {
+            throw new UidGenerateException("Interrupted while waiting for coalesced uid!");
+          }
+        }
+        LockSupport.parkNanos(this, followerParkNanos);
+      }
+    } finally {
+      if (interrupted) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  /**
+   * 取出所有等待的请求, 一次批量获取并分发
+   */
+  private void dispatch() {
+    List<Waiter> batch = new ArrayList<>();
+    Waiter waiter;
+    while ((waiter = waiters.poll()) != null) {
+      batch.add(waiter);
+    }
+    if (batch.isEmpty()) {
+      return;
+    }
+
+    try {
+      long[] uids;
+      try {
+        uids = uidProvider.provideArray(batch.size());
+      } catch (RuntimeException e) {
+        for (Waiter w : batch) {
+          w.fail(e);
+        }
+        return;
+      }
+
+      for (int i = 0; i < batch.size(); i++) {
+        if (uids != null && i < uids.length) {
+          batch.get(i).complete(uids[i]);
+        } else {
+          batch.get(i).fail(new UidGenerateException("Provider offers less uids than required"));
+        }
+      }
+    } finally {
+      // an Error thrown by the provider propagates to the leader, the drained waiters must not
+      // stay parked forever
+      for (Waiter w : batch) {
+        if (!w.done) {
+          w.fail(new UidGenerateException("Coalesced uid request failed!"));
+        }
+      }
+    }
+  }
+
+  /**
+   * 等待中的单个获取请求
+   */
+  private static final class Waiter {
+
+    private final Thread thread;
+    private long uid;
+    private RuntimeException error;
+    private volatile boolean done;
+
+    Waiter(Thread thread) {
+      this.thread = thread;
+    }
+
+    void complete(long uid) {
+      this.uid = uid;
+      this.done = true;
+      LockSupport.unpark(thread);
+    }
+
+    void fail(RuntimeException error) {
+      this.error = error;
+      this.done = true;
+      LockSupport.unpark(thread);
+    }
+
+    long result() {
+      if (error != null) {
+        throw error;
+      }
+      return uid;
+    }
+  }
+}
@@ -0,0 +1,129 @@
+package com.black.opensdk.uidclient.client;
+
+import com.black.opensdk.uidclient.buffer.SharedPaddingScheduler;
+import com.black.opensdk.uidclient.buffer.UidProvider;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.Assert;
+
+/**
+ * 多命名空间 uid client, 每个命名空间(如订单, 支付)有独立的 provider 和缓冲区.
+ *
+ * All namespaces share one {@link SharedPaddingScheduler}, so the padding threads are bounded by
+ * the scheduler's workers instead of growing with the namespaces, and a namespace close to empty is
+ * padded before the fuller ones.
+ *
+ * @author chen
+ */
+public class MultiNamespaceUidClient {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(MultiNamespaceUidClient.class);
+
+  private final SharedPaddingScheduler paddingScheduler;
+
+  private final ConcurrentMap<String, CachedUidGeneratorClient> clients =
+      new ConcurrentHashMap<>();
+
+  public MultiNamespaceUidClient() {
+    this(SharedPaddingScheduler.DEFAULT_WORKERS);
+  }
+
+  /**
+   * @param paddingWorkers count of padding threads shared by all namespaces
+   */
+  public MultiNamespaceUidClient(int paddingWorkers) {
+    this.paddingScheduler = new SharedPaddingScheduler(paddingWorkers);
+  }
+
+  /**
+   * 以默认配置注册命名空间并初始化
+   */
+  public CachedUidGeneratorClient register(String namespace, UidProvider uidProvider)
+      throws Exception {
+    CachedUidGeneratorClient client = new CachedUidGeneratorClient();
+    client.setUidProvider(uidProvider);
+    register(namespace, client);
+    return client;
+  }
+
+  /**
+   * 注册命名空间并初始化, client 必须未初始化. 未设置 metricsName 时使用命名空间.
+   */
+  public void register(String namespace, CachedUidGeneratorClient client) throws Exception {
+    Assert.hasText(namespace, "Namespace Can Not Be Null!");
+    Assert.notNull(client, "Client Can Not Be Null!");
+    Assert.isTrue(clients.putIfAbsent(namespace, client) == null,
+        "Namespace " + namespace + " already registered!");
+
+    client.setPaddingScheduler(paddingScheduler);
+    if (client.getMetricsName() == null) {
+      client.setMetricsName(namespace);
+    }
+    try {
+      client.init();
+    } catch (Exception e) {
+      clients.remove(namespace, client);
+      throw e;
+    }
+    LOGGER.info("Registered uid namespace {}", namespace);
+  }
+
+  /**
+   * 注销命名空间并销毁其 client
+   */
+  public void unregister(String namespace) throws Exception {
+    CachedUidGeneratorClient client = clients.remove(namespace);
+    if (client != null) {
+      client.destroy();
+    }
+  }
+
+  public long getUID(String namespace) {
+    return getClient(namespace).getUID();
+  }
+
+  public long[] getUIDs(String namespace, int count) {
+    return getClient(namespace).getUIDs(count);
+  }
+
+  public void fill(String namespace, long[] dest) {
+    getClient(namespace).fill(dest);
+  }
+
+  /**
+   * @return client of the namespace, never null
+   */
+  public CachedUidGeneratorClient getClient(String namespace) {
+    CachedUidGeneratorClient client = clients.get(namespace);
+    if (client == null) {
+      throw new IllegalArgumentException("Unknown uid namespace " + namespace);
+    }
+    return client;
+  }
+
+  public Set<String> getNamespaces() {
+    return Collections.unmodifiableSet(clients.keySet());
+  }
+
+  /**
+   * 销毁所有命名空间, 最后关闭共享添加线程池
+   */
+  public void destroy() throws Exception {
+    for (String namespace : clients.keySet()) {
+      try {
+        unregister(namespace);
+      } catch (Exception e) {
+        LOGGER.error("Destroy uid namespace {} error", namespace, e);
+      }
+    }
+    paddingScheduler.shutdown();
+  }
+
+  public SharedPaddingScheduler getPaddingScheduler() {
+    return paddingScheduler;
+  }
+}
@@ -0,0 +1,173 @@
+package com.black.opensdk.uidclient.client;
+
+import com.black.opensdk.uidclient.buffer.Buffer;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import org.springframework.util.Assert;
+
+/**
+ * 线程本地uid缓存, 每个线程从共享缓冲区批量获取一小段uid, 之后的获取只访问线程本地数据.
+ *
+ * Every chunk is registered, so {@link #drain()} can return the uids cached by all threads, e.g.
+ * into the snapshot on shutdown. The owner of a chunk is weakly referenced: once a dead thread is
+ * garbage collected, its chunk and the uids left in it are adopted by the next new thread, so the
+ * count of chunks stays bounded by the peak count of threads using the cache.
+ *
+ * @author chen
+ */
+public class ThreadLocalUidCache {
+
+  private final Buffer buffer;
+
+  private final int chunkSize;
+
+  /**
+   * 共享缓冲区为空时的最长等待时间, 0 表示不等待
+   */
+  private final long takeTimeoutNanos;
+
+  private final ThreadLocal<Chunk> chunks;
+
+  /**
+   * 所有线程的缓存, 以及已被回收的线程, 其缓存由新线程接管
+   */
+  private final Set<Chunk> registered = ConcurrentHashMap.newKeySet();
+  private final ReferenceQueue<Thread> deadOwners = new ReferenceQueue<>();
+
+  /**
+   * @param buffer 共享缓冲区
+   * @param chunkSize 每个线程每次从共享缓冲区获取的个数
+   */
+  public ThreadLocalUidCache(Buffer buffer, int chunkSize) {
+    this(buffer, chunkSize, 0L);
+  }
+
+  /**
+   * @param buffer 共享缓冲区
+   * @param chunkSize 每个线程每次从共享缓冲区获取的个数
+   * @param takeTimeoutNanos 共享缓冲区为空时的最长等待时间, 见 {@link Buffer#take(long, TimeUnit)}
+   */
+  public ThreadLocalUidCache(Buffer buffer, int chunkSize, long takeTimeoutNanos) {
+    Assert.notNull(buffer, "Buffer Can Not Be Null!");
+    Assert.isTrue(chunkSize > 0, "Chunk size must be positive");
+    Assert.isTrue(takeTimeoutNanos >= 0, "Take timeout must not be negative");
+    this.buffer = buffer;
+    this.chunkSize = chunkSize;
+    this.takeTimeoutNanos = takeTimeoutNanos;
+    this.chunks = ThreadLocal.withInitial(this::newChunk);
+  }
+
+  /**
+   * 获取uid, 本地缓存用完后从共享缓冲区批量补充.
+   * 共享缓冲区也没有uid时, 退化为 {@link Buffer#take()} (或带超时的等待), 由其触发获取拒绝策略.
+   *
+   * @return UID
+   */
+  public long take() {
+    Chunk chunk = chunks.get();
+    // uncontended except while drain() runs
+    synchronized (chunk) {
+      if (chunk.position < chunk.limit) {
+        return chunk.uids[chunk.position++];
+      }
+      if (!chunk.drained) {
+        int taken = buffer.take(chunk.uids, chunkSize);
+        if (taken > 0) {
+          chunk.position = 1;
+          chunk.limit = taken;
+          return chunk.uids[0];
+        }
+      }
+    }
+    return takeTimeoutNanos > 0 ? buffer.take(takeTimeoutNanos, TimeUnit.NANOSECONDS)
+        : buffer.take();
+  }
+
+  /**
+   * 取出所有线程缓存中剩余的uid, 之后的获取直接访问共享缓冲区. 用于关闭时保存快照
+   *
+   * @return uids left in the chunks of all threads
+   */
+  public long[] drain() {
+    long[] uids = new long[0];
+    int count = 0;
+    for (Chunk chunk : registered) {
+      synchronized (chunk) {
+        int remaining = chunk.limit - chunk.position;
+        if (remaining > 0) {
+          uids = Arrays.copyOf(uids, count + remaining);
+          System.arraycopy(chunk.uids, chunk.position, uids, count, remaining);
+          count += remaining;
+        }
+        chunk.position = chunk.limit;
+        chunk.drained = true;
+      }
+    }
+    return uids;
+  }
+
+  /**
+   * 线程的第一次获取: 接管已被回收线程的缓存, 没有时创建新的缓存
+   */
+  private Chunk newChunk() {
+    Reference<? extends Thread> dead;
+    while ((dead = deadOwners.poll()) != null) {
+      Chunk orphan = ((Owner) dead).chunk;
+      synchronized (orphan) {
+        if (!orphan.drained) {
+          orphan.owner = new Owner(Thread.currentThread(), orphan, deadOwners);
+          return orphan;
+        }
+      }
+      registered.remove(orphan);
+    }
+    Chunk chunk = new Chunk(chunkSize);
+    synchronized (chunk) {
+      chunk.owner = new Owner(Thread.currentThread(), chunk, deadOwners);
+    }
+    registered.add(chunk);
+    return chunk;
+  }
+
+  public int getChunkSize() {
+    return chunkSize;
+  }
+
+  /**
+   * 线程本地的一段uid, 由所属线程和 drain() 加锁访问
+   */
+  private static final class Chunk {
+
+    private final long[] uids;
+    private int position;
+    private int limit;
+    private boolean drained;
+
+    /**
+     * 持有 owner 使其在线程被回收后进入队列
+     */
+    private Owner owner;
+
+    Chunk(int chunkSize) {
+      this.uids = new long[chunkSize];
+    }
+  }
+
+  /**
+   * 缓存所属线程的弱引用, 线程被回收后进入 deadOwners
+   */
+  private static final class Owner extends WeakReference<Thread> {
+
+    private final Chunk chunk;
+
+    Owner(Thread thread, Chunk chunk, ReferenceQueue<Thread> queue) {
+      super(thread, queue);
+      this.chunk = chunk;
+    }
+  }
+}
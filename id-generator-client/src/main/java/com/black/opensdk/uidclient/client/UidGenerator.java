@@ -12,4 +12,25 @@ public interface UidGenerator {
    * @return
    */
   long getUID();
+
+  /**
+   * 批量获取UID接口, 默认逐个调用 {@link #getUID()}, 实现类可覆盖为批量获取
+   * @param count 获取的个数
+   * @return
+   */
+  default long[] getUIDs(int count) {
+    long[] uids = new long[count];
+    fill(uids);
+    return uids;
+  }
+
+  /**
+   * 批量获取UID, 填满dest. 默认逐个调用 {@link #getUID()}, 实现类可覆盖为批量获取
+   * @param dest 目标数组
+   */
+  default void fill(long[] dest) {
+    for (int i = 0; i < dest.length; i++) {
+      dest[i] = getUID();
+    }
+  }
 }
@@ -0,0 +1,18 @@
+package com.black.opensdk.uidclient.exception;
+
+/**
+ * 缓冲区为空, 获取被拒绝. 不记录堆栈, 可以预先创建并重复抛出.
+ *
+ * @author chen
+ */
+public class BufferEmptyException extends RuntimeException {
+
+  private static final long serialVersionUID = 6718384125366425816L;
+
+  /**
+   * Constructor with message, without stack trace and suppressed exceptions
+   */
+  public BufferEmptyException(String message) {
+    super(message, null, false, false);
+  }
+}
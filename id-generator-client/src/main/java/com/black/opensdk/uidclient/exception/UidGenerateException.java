@@ -16,4 +16,11 @@ public class UidGenerateException extends RuntimeException {
   public UidGenerateException(String message) {
     super(message);
   }
+
+  /**
+   * Constructor with message and cause
+   */
+  public UidGenerateException(String message, Throwable cause) {
+    super(message, cause);
+  }
 }
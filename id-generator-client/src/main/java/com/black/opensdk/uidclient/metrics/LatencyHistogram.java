@@ -0,0 +1,123 @@
+package com.black.opensdk.uidclient.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 对数分桶的耗时直方图, 记录不加锁不分配对象.
+ *
+ * Like HdrHistogram, every power of 2 range is split into {@link #SUB_BUCKETS} linear buckets, so
+ * a recorded value is reported with a relative error of at most 1 / {@link #SUB_BUCKETS}. Values
+ * less than {@link #SUB_BUCKETS} are recorded exactly. Counts are cumulative since creation.
+ *
+ * @author chen
+ */
+public class LatencyHistogram {
+
+  /**
+   * 每个2的幂区间的线性分桶数, 必须是2的幂
+   */
+  private static final int SUB_BUCKET_BITS = 3;
+  private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+  /**
+   * 覆盖 [0, Long.MAX_VALUE] 所需的桶数
+   */
+  private static final int BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+  private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+  private final LongAdder count = new LongAdder();
+  private final LongAdder sum = new LongAdder();
+  private final LongAccumulator max = new LongAccumulator(Math::max, 0L);
+
+  /**
+   * 记录一次耗时, 负数按0记录
+   */
+  public void record(long value) {
+    long v = Math.max(0L, value);
+    counts.incrementAndGet(bucketIndex(v));
+    count.increment();
+    sum.add(v);
+    max.accumulate(v);
+  }
+
+  /**
+   * @param percentile in [0, 100]
+   * @return upper bound of the bucket holding the percentile, 0 if nothing has been recorded
+   */
+  public long getPercentile(double percentile) {
+    return getPercentile(percentile, this);
+  }
+
+  /**
+   * 合并多个直方图计算百分位, 如按时间轮换的多个窗口
+   *
+   * @param percentile in [0, 100]
+   * @return upper bound of the bucket holding the percentile, 0 if nothing has been recorded
+   */
+  public static long getPercentile(double percentile, LatencyHistogram... histograms) {
+    long total = 0;
+    long maxValue = 0;
+    long[] snapshot = new long[BUCKETS];
+    for (LatencyHistogram histogram : histograms) {
+      for (int i = 0; i < BUCKETS; i++) {
+        long n = histogram.counts.get(i);
+        snapshot[i] += n;
+        total += n;
+      }
+      maxValue = Math.max(maxValue, histogram.max.get());
+    }
+    if (total == 0) {
+      return 0L;
+    }
+
+    long rank = Math.max(1L, (long) Math.ceil(total * Math.min(100.0, percentile) / 100.0));
+    long seen = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      seen += snapshot[i];
+      if (seen >= rank) {
+        return Math.min(upperBound(i), maxValue);
+      }
+    }
+    return maxValue;
+  }
+
+  public long getCount() {
+    return count.sum();
+  }
+
+  public long getMax() {
+    return max.get();
+  }
+
+  public double getMean() {
+    long n = count.sum();
+    return n == 0 ? 0.0 : (double) sum.sum() / n;
+  }
+
+  /**
+   * 值所在的桶: [0, SUB_BUCKETS) 每个值一个桶, 之后每个2的幂区间 SUB_BUCKETS 个桶
+   */
+  static int bucketIndex(long value) {
+    if (value < SUB_BUCKETS) {
+      return (int) value;
+    }
+    int exponent = 63 - Long.numberOfLeadingZeros(value);
+    int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+    return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+  }
+
+  /**
+   * 桶内的最大值
+   */
+  static long upperBound(int index) {
+    if (index < SUB_BUCKETS) {
+      return index;
+    }
+    int exponent = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+    long subBucket = index % SUB_BUCKETS;
+    long width = 1L << (exponent - SUB_BUCKET_BITS);
+    return ((SUB_BUCKETS + subBucket) << (exponent - SUB_BUCKET_BITS)) + width - 1;
+  }
+}
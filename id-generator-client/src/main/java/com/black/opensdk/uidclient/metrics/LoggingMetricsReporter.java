@@ -0,0 +1,19 @@
+package com.black.opensdk.uidclient.metrics;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 以 INFO 日志输出指标快照.
+ *
+ * @author chen
+ */
+public class LoggingMetricsReporter implements MetricsReporter {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(LoggingMetricsReporter.class);
+
+  @Override
+  public void report(MetricsSnapshot snapshot) {
+    LOGGER.info("Uid metrics {}", snapshot);
+  }
+}
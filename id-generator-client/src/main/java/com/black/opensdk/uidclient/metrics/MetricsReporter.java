@@ -0,0 +1,17 @@
+package com.black.opensdk.uidclient.metrics;
+
+/**
+ * 指标上报, 由 client 按固定间隔调用, 可对接日志, Prometheus 等.
+ *
+ * @author chen
+ */
+@FunctionalInterface
+public interface MetricsReporter {
+
+  /**
+   * 上报一次指标快照, 在上报线程中调用, 不应长时间阻塞
+   *
+   * @param snapshot cumulative metrics since the client is initialized
+   */
+  void report(MetricsSnapshot snapshot);
+}
@@ -0,0 +1,159 @@
+package com.black.opensdk.uidclient.metrics;
+
+/**
+ * 某一时刻的指标快照, 不可变.
+ *
+ * @author chen
+ */
+public final class MetricsSnapshot {
+
+  private final long takeCount;
+  private final long fallbackCount;
+  private final long fallbackErrorCount;
+  private final long rejectedPutCount;
+  private final long rejectedTakeCount;
+  private final long paddingCount;
+  private final long paddingErrorCount;
+  private final long rejectedPaddingCount;
+  private final long paddedUidCount;
+  private final Latency takeLatency;
+  private final Latency paddingLatency;
+  private final Latency providerLatency;
+
+  MetricsSnapshot(UidMetrics metrics) {
+    this.takeCount = metrics.getTakeCount();
+    this.fallbackCount = metrics.getFallbackCount();
+    this.fallbackErrorCount = metrics.getFallbackErrorCount();
+    this.rejectedPutCount = metrics.getRejectedPutCount();
+    this.rejectedTakeCount = metrics.getRejectedTakeCount();
+    this.paddingCount = metrics.getPaddingCount();
+    this.paddingErrorCount = metrics.getPaddingErrorCount();
+    this.rejectedPaddingCount = metrics.getRejectedPaddingCount();
+    this.paddedUidCount = metrics.getPaddedUidCount();
+    this.takeLatency = new Latency(metrics.getTakeLatency());
+    this.paddingLatency = new Latency(metrics.getPaddingLatency());
+    this.providerLatency = new Latency(metrics.getProviderLatency());
+  }
+
+  /**
+   * Getters
+   */
+  public long getTakeCount() {
+    return takeCount;
+  }
+
+  public long getFallbackCount() {
+    return fallbackCount;
+  }
+
+  public long getFallbackErrorCount() {
+    return fallbackErrorCount;
+  }
+
+  public long getRejectedPutCount() {
+    return rejectedPutCount;
+  }
+
+  public long getRejectedTakeCount() {
+    return rejectedTakeCount;
+  }
+
+  public long getPaddingCount() {
+    return paddingCount;
+  }
+
+  public long getPaddingErrorCount() {
+    return paddingErrorCount;
+  }
+
+  public long getRejectedPaddingCount() {
+    return rejectedPaddingCount;
+  }
+
+  public long getPaddedUidCount() {
+    return paddedUidCount;
+  }
+
+  public Latency getTakeLatency() {
+    return takeLatency;
+  }
+
+  public Latency getPaddingLatency() {
+    return paddingLatency;
+  }
+
+  public Latency getProviderLatency() {
+    return providerLatency;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder builder = new StringBuilder();
+    builder.append("[takes=").append(takeCount)
+        .append(", fallbacks=").append(fallbackCount)
+        .append(", fallbackErrors=").append(fallbackErrorCount)
+        .append(", rejectedPuts=").append(rejectedPutCount)
+        .append(", rejectedTakes=").append(rejectedTakeCount)
+        .append(", paddings=").append(paddingCount)
+        .append(", paddingErrors=").append(paddingErrorCount)
+        .append(", rejectedPaddings=").append(rejectedPaddingCount)
+        .append(", paddedUids=").append(paddedUidCount)
+        .append(", takeLatency=").append(takeLatency)
+        .append(", paddingLatency=").append(paddingLatency)
+        .append(", providerLatency=").append(providerLatency).append("]");
+
+    return builder.toString();
+  }
+
+  /**
+   * 耗时分布, 单位纳秒
+   */
+  public static final class Latency {
+
+    private final long count;
+    private final double mean;
+    private final long p50;
+    private final long p99;
+    private final long p999;
+    private final long max;
+
+    Latency(LatencyHistogram histogram) {
+      this.count = histogram.getCount();
+      this.mean = histogram.getMean();
+      this.p50 = histogram.getPercentile(50);
+      this.p99 = histogram.getPercentile(99);
+      this.p999 = histogram.getPercentile(99.9);
+      this.max = histogram.getMax();
+    }
+
+    public long getCount() {
+      return count;
+    }
+
+    public double getMean() {
+      return mean;
+    }
+
+    public long getP50() {
+      return p50;
+    }
+
+    public long getP99() {
+      return p99;
+    }
+
+    public long getP999() {
+      return p999;
+    }
+
+    public long getMax() {
+      return max;
+    }
+
+    @Override
+    public String toString() {
+      return "[count=" + count + ", mean=" + (long) mean + ", p50=" + p50 + ", p99=" + p99
+          + ", p999=" + p999 + ", max=" + max + "]";
+    }
+  }
+}
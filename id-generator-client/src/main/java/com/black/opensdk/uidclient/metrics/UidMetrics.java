@@ -0,0 +1,270 @@
+package com.black.opensdk.uidclient.metrics;
+
+import com.black.opensdk.uidclient.buffer.RejectedPutBufferHandler;
+import com.black.opensdk.uidclient.buffer.RejectedTakeBufferHandler;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.Assert;
+
+/**
+ * client 和 {@link com.black.opensdk.uidclient.buffer.BufferPaddingExecutor} 的运行指标.
+ *
+ * Counters are {@link LongAdder}s, so recording from many threads does not contend on one cache
+ * line. Take latency is only timed for 1 in {@code takeSampleRate} takes, the other takes only pay
+ * for one random number and one counter increment.
+ *
+ * @author chen
+ */
+public class UidMetrics implements UidMetricsMXBean {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(UidMetrics.class);
+
+  /**
+   * 默认每64次获取记录一次耗时
+   */
+  public static final int DEFAULT_TAKE_SAMPLE_RATE = 64;
+
+  private static final String OBJECT_NAME_PREFIX =
+      "com.black.opensdk.uidclient:type=UidMetrics,name=";
+
+  private final int takeSampleMask;
+
+  private final LongAdder takes = new LongAdder();
+  private final LongAdder fallbacks = new LongAdder();
+  private final LongAdder fallbackErrors = new LongAdder();
+  private final LongAdder rejectedPuts = new LongAdder();
+  private final LongAdder rejectedTakes = new LongAdder();
+  private final LongAdder paddings = new LongAdder();
+  private final LongAdder paddingErrors = new LongAdder();
+  private final LongAdder rejectedPaddings = new LongAdder();
+  private final LongAdder paddedUids = new LongAdder();
+
+  private final LatencyHistogram takeLatency = new LatencyHistogram();
+  private final LatencyHistogram paddingLatency = new LatencyHistogram();
+  private final LatencyHistogram providerLatency = new LatencyHistogram();
+
+  /**
+   * 注册至 JMX 的名称, null 表示未注册
+   */
+  private ObjectName objectName;
+
+  public UidMetrics() {
+    this(DEFAULT_TAKE_SAMPLE_RATE);
+  }
+
+  /**
+   * @param takeSampleRate take latency is recorded once every takeSampleRate takes, must be a
+   * power of 2
+   */
+  public UidMetrics(int takeSampleRate) {
+    Assert.isTrue(takeSampleRate > 0 && Integer.bitCount(takeSampleRate) == 1,
+        "Take sample rate must be a power of 2");
+    this.takeSampleMask = takeSampleRate - 1;
+  }
+
+  /**
+   * 本次获取是否记录耗时
+   */
+  public boolean sampleTake() {
+    return (ThreadLocalRandom.current().nextInt() & takeSampleMask) == 0;
+  }
+
+  /**
+   * Recorders
+   */
+  public void recordTakes(int count) {
+    takes.add(count);
+  }
+
+  public void recordTakeLatency(long nanos) {
+    takeLatency.record(nanos);
+  }
+
+  public void recordFallback() {
+    fallbacks.increment();
+  }
+
+  public void recordFallbackError() {
+    fallbackErrors.increment();
+  }
+
+  public void recordPadding(long nanos) {
+    paddings.increment();
+    paddingLatency.record(nanos);
+  }
+
+  public void recordPaddingError() {
+    paddingErrors.increment();
+  }
+
+  public void recordRejectedPadding() {
+    rejectedPaddings.increment();
+  }
+
+  public void recordPaddedUids(int count) {
+    paddedUids.add(count);
+  }
+
+  public void recordProviderLatency(long nanos) {
+    providerLatency.record(nanos);
+  }
+
+  /**
+   * 包装拒绝策略, 每次拒绝计数后交给原策略处理
+   */
+  public RejectedPutBufferHandler countingPutHandler(RejectedPutBufferHandler handler) {
+    Assert.notNull(handler, "RejectedPutBufferHandler Can Not Be Null!");
+    return (buffer, uid) -> {
+      rejectedPuts.increment();
+      handler.rejectPutBuffer(buffer, uid);
+    };
+  }
+
+  public RejectedTakeBufferHandler countingTakeHandler(RejectedTakeBufferHandler handler) {
+    Assert.notNull(handler, "RejectedTakeBufferHandler Can Not Be Null!");
+    return buffer -> {
+      rejectedTakes.increment();
+      handler.rejectTakeBuffer(buffer);
+    };
+  }
+
+  /**
+   * 当前指标快照
+   */
+  public MetricsSnapshot snapshot() {
+    return new MetricsSnapshot(this);
+  }
+
+  /**
+   * 注册至 platform MBeanServer, 失败时只记录日志
+   */
+  public synchronized void registerMBean(String name) {
+    try {
+      ObjectName candidate = new ObjectName(OBJECT_NAME_PREFIX + ObjectName.quote(name));
+      ManagementFactory.getPlatformMBeanServer().registerMBean(this, candidate);
+      this.objectName = candidate;
+    } catch (Exception e) {
+      LOGGER.warn("Register uid metrics MBean {} error", name, e);
+    }
+  }
+
+  public synchronized void unregisterMBean() {
+    if (objectName == null) {
+      return;
+    }
+    try {
+      MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+      if (server.isRegistered(objectName)) {
+        server.unregisterMBean(objectName);
+      }
+    } catch (Exception e) {
+      LOGGER.warn("Unregister uid metrics MBean {} error", objectName, e);
+    }
+    objectName = null;
+  }
+
+  /**
+   * Getters
+   */
+  LatencyHistogram getTakeLatency() {
+    return takeLatency;
+  }
+
+  LatencyHistogram getPaddingLatency() {
+    return paddingLatency;
+  }
+
+  LatencyHistogram getProviderLatency() {
+    return providerLatency;
+  }
+
+  @Override
+  public long getTakeCount() {
+    return takes.sum();
+  }
+
+  @Override
+  public long getFallbackCount() {
+    return fallbacks.sum();
+  }
+
+  @Override
+  public long getFallbackErrorCount() {
+    return fallbackErrors.sum();
+  }
+
+  @Override
+  public long getRejectedPutCount() {
+    return rejectedPuts.sum();
+  }
+
+  @Override
+  public long getRejectedTakeCount() {
+    return rejectedTakes.sum();
+  }
+
+  @Override
+  public long getPaddingCount() {
+    return paddings.sum();
+  }
+
+  @Override
+  public long getPaddingErrorCount() {
+    return paddingErrors.sum();
+  }
+
+  @Override
+  public long getRejectedPaddingCount() {
+    return rejectedPaddings.sum();
+  }
+
+  @Override
+  public long getPaddedUidCount() {
+    return paddedUids.sum();
+  }
+
+  @Override
+  public long getTakeLatencyP50Nanos() {
+    return takeLatency.getPercentile(50);
+  }
+
+  @Override
+  public long getTakeLatencyP99Nanos() {
+    return takeLatency.getPercentile(99);
+  }
+
+  @Override
+  public long getTakeLatencyP999Nanos() {
+    return takeLatency.getPercentile(99.9);
+  }
+
+  @Override
+  public long getTakeLatencyMaxNanos() {
+    return takeLatency.getMax();
+  }
+
+  @Override
+  public long getPaddingLatencyP99Nanos() {
+    return paddingLatency.getPercentile(99);
+  }
+
+  @Override
+  public long getPaddingLatencyMaxNanos() {
+    return paddingLatency.getMax();
+  }
+
+  @Override
+  public long getProviderLatencyP99Nanos() {
+    return providerLatency.getPercentile(99);
+  }
+
+  @Override
+  public long getProviderLatencyMaxNanos() {
+    return providerLatency.getMax();
+  }
+}
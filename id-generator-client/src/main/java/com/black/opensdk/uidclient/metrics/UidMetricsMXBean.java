@@ -0,0 +1,43 @@
+package com.black.opensdk.uidclient.metrics;
+
+/**
+ * JMX 暴露的指标, 耗时单位为纳秒, 计数为启动以来的累计值.
+ *
+ * @author chen
+ */
+public interface UidMetricsMXBean {
+
+  long getTakeCount();
+
+  long getFallbackCount();
+
+  long getFallbackErrorCount();
+
+  long getRejectedPutCount();
+
+  long getRejectedTakeCount();
+
+  long getPaddingCount();
+
+  long getPaddingErrorCount();
+
+  long getRejectedPaddingCount();
+
+  long getPaddedUidCount();
+
+  long getTakeLatencyP50Nanos();
+
+  long getTakeLatencyP99Nanos();
+
+  long getTakeLatencyP999Nanos();
+
+  long getTakeLatencyMaxNanos();
+
+  long getPaddingLatencyP99Nanos();
+
+  long getPaddingLatencyMaxNanos();
+
+  long getProviderLatencyP99Nanos();
+
+  long getProviderLatencyMaxNanos();
+}
@@ -0,0 +1,246 @@
+package com.black.opensdk.uidclient.persist;
+
+import com.black.opensdk.uidclient.buffer.BufferJournal;
+import com.black.opensdk.uidclient.buffer.MpmcRingBuffer;
+import com.black.opensdk.uidclient.util.NamingThreadFactory;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.Assert;
+
+/**
+ * 内存映射的缓冲区日志, 崩溃后恢复未被获取的uid.
+ *
+ * The file mirrors the slots of a {@link MpmcRingBuffer}: every put writes (sequence, uid) into the
+ * mapped slot, and the header keeps the durable cursor, i.e. the take progress which has been
+ * forced to disk. A background thread forces the file every syncInterval (group commit). A take
+ * which gets more than {@code window} sequences beyond the durable cursor forces the file itself
+ * before its uid is returned, so every uid handed out has a sequence less than
+ * {@code durableCursor + window}. Recovery therefore returns the uids in
+ * {@code [durableCursor + window, tail)}, at most window uids are skipped.
+ *
+ * The window trades crash loss against take latency: a smaller window skips fewer uids after a
+ * crash, but more takes run past the durable cursor between two background syncs and force the
+ * file on the take path. It should cover the uids taken in about one syncInterval, see
+ * {@link #defaultWindow(int)}.
+ *
+ * Layout: a 32 bytes header {@code [magic:int][slots:int][window:int][reserved:int]
+ * [durableCursor:long][reserved:long]} followed by slots of {@code [uid:long][sequence:long]}.
+ *
+ * @author chen
+ */
+public class MappedUidJournal implements BufferJournal {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(MappedUidJournal.class);
+
+  private static final String SYNC_NAME = "UidJournal-Sync";
+
+  /**
+   * "UIDJ"
+   */
+  private static final int MAGIC = 0x5549444A;
+
+  private static final int MAGIC_OFFSET = 0;
+  private static final int SLOTS_OFFSET = 4;
+  private static final int WINDOW_OFFSET = 8;
+  private static final int CURSOR_OFFSET = 16;
+  private static final int HEADER_SIZE = 32;
+  private static final int SLOT_SIZE = 16;
+
+  /**
+   * 空槽的序号
+   */
+  private static final long EMPTY_SEQUENCE = -1L;
+
+  /**
+   * 默认每10毫秒落盘一次
+   */
+  public static final long DEFAULT_SYNC_INTERVAL_MILLIS = 10L;
+
+  /**
+   * 默认窗口为缓冲区容量的 1/16
+   */
+  public static final int DEFAULT_WINDOW_DIVISOR = 16;
+
+  private final Path path;
+  private final int slots;
+  private final long indexMask;
+  private final int window;
+  private final long syncIntervalMillis;
+
+  private FileChannel channel;
+  private MappedByteBuffer mapped;
+
+  /**
+   * 已落盘的获取进度
+   */
+  private volatile long durableCursor;
+
+  private MpmcRingBuffer ringBuffer;
+  private ScheduledExecutorService syncSchedule;
+
+  /**
+   * @param path journal file
+   * @param slots must be the ring size of the journaled {@link MpmcRingBuffer}
+   * @param window max count of uids which may be taken beyond the durable cursor
+   * @param syncIntervalMillis interval of background force, unit as milliseconds
+   */
+  public MappedUidJournal(Path path, int slots, int window, long syncIntervalMillis) {
+    Assert.notNull(path, "Journal Path Can Not Be Null!");
+    Assert.isTrue(slots > 0 && Integer.bitCount(slots) == 1, "Journal slots must be a power of 2");
+    Assert.isTrue(window > 0, "Journal window must positive!");
+    Assert.isTrue(syncIntervalMillis > 0, "Journal sync interval must positive!");
+    this.path = path;
+    this.slots = slots;
+    this.indexMask = slots - 1;
+    this.window = window;
+    this.syncIntervalMillis = syncIntervalMillis;
+  }
+
+  /**
+   * 默认窗口: 缓冲区容量的 1/16, 崩溃后最多跳过这么多uid. 获取速率很高时(一个落盘间隔内的获取数超过
+   * 窗口)会有较多获取线程自己落盘, 此时应按 落盘间隔 x 获取速率 设置窗口.
+   *
+   * @param bufferSize capacity of the journaled buffer
+   */
+  public static int defaultWindow(int bufferSize) {
+    return Math.max(1, bufferSize / DEFAULT_WINDOW_DIVISOR);
+  }
+
+  /**
+   * 打开日志文件, 返回上次运行中未被获取的uid, 并清空日志.
+   *
+   * The file is cleared and forced before this method returns, so the recovered uids are only
+   * journaled again once they are put into the new buffer.
+   *
+   * @return uids in [durableCursor + window, tail) of the last run, ordered by sequence
+   */
+  public long[] open() throws IOException {
+    channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+        StandardOpenOption.WRITE);
+    long[] recovered = recover();
+
+    mapped = channel.map(MapMode.READ_WRITE, 0, HEADER_SIZE + (long) slots * SLOT_SIZE);
+    for (int i = 0; i < slots; i++) {
+      mapped.putLong(HEADER_SIZE + i * SLOT_SIZE + 8, EMPTY_SEQUENCE);
+    }
+    mapped.putInt(MAGIC_OFFSET, MAGIC);
+    mapped.putInt(SLOTS_OFFSET, slots);
+    mapped.putInt(WINDOW_OFFSET, window);
+    mapped.putLong(CURSOR_OFFSET, 0L);
+    mapped.force();
+    durableCursor = 0L;
+    return recovered;
+  }
+
+  /**
+   * 读取上次运行的日志
+   */
+  private long[] recover() throws IOException {
+    long size = channel.size();
+    if (size < HEADER_SIZE) {
+      return new long[0];
+    }
+    MappedByteBuffer previous = channel.map(MapMode.READ_ONLY, 0, size);
+    int previousSlots = previous.getInt(SLOTS_OFFSET);
+    if (previous.getInt(MAGIC_OFFSET) != MAGIC || previousSlots <= 0
+        || HEADER_SIZE + (long) previousSlots * SLOT_SIZE > size) {
+      LOGGER.warn("Ignore invalid uid journal {}", path);
+      return new long[0];
+    }
+
+    long skipBefore = previous.getLong(CURSOR_OFFSET) + previous.getInt(WINDOW_OFFSET);
+    long[][] entries = new long[previousSlots][];
+    int count = 0;
+    for (int i = 0; i < previousSlots; i++) {
+      long sequence = previous.getLong(HEADER_SIZE + i * SLOT_SIZE + 8);
+      if (sequence != EMPTY_SEQUENCE && sequence >= skipBefore) {
+        entries[count++] = new long[]{sequence, previous.getLong(HEADER_SIZE + i * SLOT_SIZE)};
+      }
+    }
+    Arrays.sort(entries, 0, count, (a, b) -> Long.compare(a[0], b[0]));
+
+    long[] uids = new long[count];
+    for (int i = 0; i < count; i++) {
+      uids[i] = entries[i][1];
+    }
+    LOGGER.info("Recovered {} uids from journal {}, skip before sequence {}", count, path,
+        skipBefore);
+    return uids;
+  }
+
+  /**
+   * 开始后台落盘, ringBuffer 必须已经设置本日志
+   */
+  public void start(MpmcRingBuffer ringBuffer) {
+    Assert.isTrue(ringBuffer.getRingSize() == slots, "Journal slots must equal ring size!");
+    this.ringBuffer = ringBuffer;
+    this.syncSchedule = Executors
+        .newSingleThreadScheduledExecutor(new NamingThreadFactory(SYNC_NAME, true));
+    syncSchedule.scheduleWithFixedDelay(() -> sync(ringBuffer.getCursor()), syncIntervalMillis,
+        syncIntervalMillis, TimeUnit.MILLISECONDS);
+  }
+
+  @Override
+  public void onPut(long sequence, long uid) {
+    int offset = HEADER_SIZE + (int) (sequence & indexMask) * SLOT_SIZE;
+    mapped.putLong(offset, uid);
+    mapped.putLong(offset + 8, sequence);
+  }
+
+  @Override
+  public void onTake(long nextSequence) {
+    if (nextSequence - durableCursor > window) {
+      sync(nextSequence);
+    }
+  }
+
+  /**
+   * 落盘获取进度, 并发调用合并为一次 force
+   */
+  private synchronized void sync(long cursor) {
+    if (cursor <= durableCursor) {
+      return;
+    }
+    // a later cursor is written if other takes are already done, one force covers them all
+    long latest = ringBuffer != null ? Math.max(cursor, ringBuffer.getCursor()) : cursor;
+    mapped.putLong(CURSOR_OFFSET, latest);
+    mapped.force();
+    durableCursor = latest;
+  }
+
+  /**
+   * 停止后台落盘, 并落盘最终的获取进度
+   */
+  public void close() throws IOException {
+    if (syncSchedule != null) {
+      syncSchedule.shutdownNow();
+    }
+    if (ringBuffer != null) {
+      sync(ringBuffer.getCursor());
+    }
+    if (channel != null) {
+      channel.close();
+    }
+  }
+
+  /**
+   * Getters
+   */
+  public long getDurableCursor() {
+    return durableCursor;
+  }
+
+  public Path getPath() {
+    return path;
+  }
+}
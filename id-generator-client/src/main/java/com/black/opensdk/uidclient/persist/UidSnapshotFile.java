@@ -0,0 +1,111 @@
+package com.black.opensdk.uidclient.persist;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import org.springframework.util.Assert;
+
+/**
+ * 未使用uid的快照文件(内存映射), 关闭时保存, 启动时加载.
+ *
+ * Layout: a 16 bytes header {@code [magic:int][state:int][count:int][reserved:int]} followed by
+ * count uids as longs. A snapshot can be restored at most once: {@link #restore()} marks the file
+ * as {@link #STATE_CONSUMED} and forces it to disk before any uid is returned, so after a crash
+ * (or a second start with the same file) the uids are never served again. A snapshot interrupted
+ * while saving stays {@link #STATE_WRITING} and is ignored.
+ *
+ * @author chen
+ */
+public class UidSnapshotFile {
+
+  /**
+   * "UIDS"
+   */
+  private static final int MAGIC = 0x55494453;
+
+  /**
+   * 文件状态: 写入中, 可加载, 已加载
+   */
+  static final int STATE_WRITING = 0;
+  static final int STATE_CLEAN = 1;
+  static final int STATE_CONSUMED = 2;
+
+  private static final int MAGIC_OFFSET = 0;
+  private static final int STATE_OFFSET = 4;
+  private static final int COUNT_OFFSET = 8;
+  private static final int HEADER_SIZE = 16;
+
+  private final Path path;
+
+  public UidSnapshotFile(Path path) {
+    Assert.notNull(path, "Snapshot Path Can Not Be Null!");
+    this.path = path;
+  }
+
+  /**
+   * 保存uid, 覆盖之前的快照. 先写uid, 落盘后才标记为可加载.
+   *
+   * @param uids uids to save
+   * @param count count of uids in [0, count) to save
+   */
+  public void save(long[] uids, int count) throws IOException {
+    Assert.isTrue(count >= 0 && count <= uids.length, "Count out of range!");
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+        StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+      // the file is never shrunk, uids after count are ignored by restore()
+      long size = Math.max(HEADER_SIZE + (long) count * Long.BYTES, channel.size());
+      MappedByteBuffer buffer = channel.map(MapMode.READ_WRITE, 0, size);
+
+      buffer.putInt(MAGIC_OFFSET, MAGIC);
+      buffer.putInt(STATE_OFFSET, STATE_WRITING);
+      buffer.putInt(COUNT_OFFSET, 0);
+      buffer.force();
+
+      buffer.position(HEADER_SIZE);
+      buffer.asLongBuffer().put(uids, 0, count);
+      buffer.force();
+
+      buffer.putInt(COUNT_OFFSET, count);
+      buffer.putInt(STATE_OFFSET, STATE_CLEAN);
+      buffer.force();
+    }
+  }
+
+  /**
+   * 加载快照中的uid, 返回前将文件标记为已加载并落盘.
+   *
+   * @return uids saved by the last clean shutdown, empty if there is no loadable snapshot
+   */
+  public long[] restore() throws IOException {
+    if (!Files.exists(path) || Files.size(path) < HEADER_SIZE) {
+      return new long[0];
+    }
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ,
+        StandardOpenOption.WRITE)) {
+      long fileSize = channel.size();
+      MappedByteBuffer buffer = channel.map(MapMode.READ_WRITE, 0, fileSize);
+      int count = buffer.getInt(COUNT_OFFSET);
+      if (buffer.getInt(MAGIC_OFFSET) != MAGIC || buffer.getInt(STATE_OFFSET) != STATE_CLEAN
+          || count < 0 || HEADER_SIZE + (long) count * Long.BYTES > fileSize) {
+        return new long[0];
+      }
+
+      long[] uids = new long[count];
+      buffer.position(HEADER_SIZE);
+      buffer.asLongBuffer().get(uids);
+
+      // 必须在使用uid之前落盘, 否则崩溃后会重复加载
+      buffer.putInt(STATE_OFFSET, STATE_CONSUMED);
+      buffer.force();
+      return uids;
+    }
+  }
+
+  public Path getPath() {
+    return path;
+  }
+}
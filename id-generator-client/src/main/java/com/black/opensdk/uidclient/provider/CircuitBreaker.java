@@ -0,0 +1,174 @@
+package com.black.opensdk.uidclient.provider;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import org.springframework.util.Assert;
+
+/**
+ * provider 熔断器.
+ *
+ * After {@code failureThreshold} consecutive failures the breaker opens and rejects every call
+ * for the open duration. Then one trial call is let through (half open): success closes the
+ * breaker, failure opens it again with the open duration doubled (exponential backoff), up to
+ * {@code maxOpenNanos}. The open duration is reset once a call succeeds.
+ *
+ * Every transition replaces the status with a CAS and starts a new epoch. {@link #tryAcquire()}
+ * hands out a permit of the current epoch, and results reported with a permit of an older epoch
+ * (calls allowed before the breaker opened or closed) are ignored, so only the holder of the
+ * trial permit decides the half open state.
+ *
+ * @author chen
+ */
+public class CircuitBreaker {
+
+  public enum State {
+    CLOSED, OPEN, HALF_OPEN
+  }
+
+  /**
+   * 不允许调用
+   */
+  public static final long REJECTED = -1L;
+
+  private final int failureThreshold;
+  private final long baseOpenNanos;
+  private final long maxOpenNanos;
+
+  private final AtomicInteger consecutiveFailures = new AtomicInteger(0);
+
+  private final AtomicReference<Status> status = new AtomicReference<>(
+      new Status(0L, false, 0L, 0, false));
+
+  /**
+   * @param failureThreshold consecutive failures to open the breaker
+   * @param baseOpen open duration of the first trip
+   * @param maxOpen max open duration
+   */
+  public CircuitBreaker(int failureThreshold, long baseOpen, long maxOpen, TimeUnit unit) {
+    Assert.isTrue(failureThreshold > 0, "Failure threshold must positive!");
+    Assert.isTrue(baseOpen > 0 && maxOpen >= baseOpen, "Open duration must positive!");
+    this.failureThreshold = failureThreshold;
+    this.baseOpenNanos = unit.toNanos(baseOpen);
+    this.maxOpenNanos = unit.toNanos(maxOpen);
+  }
+
+  /**
+   * 申请本次调用, 半开时只允许一个试探请求. 获得许可后必须用该许可调用 onSuccess 或 onFailure,
+   * 并在 finally 中调用 release
+   *
+   * @return permit of the call, {@link #REJECTED} if the call is not allowed
+   */
+  public long tryAcquire() {
+    for (; ; ) {
+      Status current = status.get();
+      if (!current.open) {
+        return permit(current.epoch, false);
+      }
+      if (System.nanoTime() - current.openUntilNanos < 0 || current.trialInflight) {
+        return REJECTED;
+      }
+      if (status.compareAndSet(current, current.withTrial(true))) {
+        return permit(current.epoch, true);
+      }
+    }
+  }
+
+  public void onSuccess(long permit) {
+    Status current = status.get();
+    if (permit == REJECTED || epoch(permit) != current.epoch) {
+      return;
+    }
+    if (!isTrial(permit)) {
+      consecutiveFailures.set(0);
+      return;
+    }
+    if (status.compareAndSet(current, new Status(current.epoch + 1, false, 0L, 0, false))) {
+      consecutiveFailures.set(0);
+    }
+  }
+
+  public void onFailure(long permit) {
+    Status current = status.get();
+    if (permit == REJECTED || epoch(permit) != current.epoch) {
+      return;
+    }
+    if (isTrial(permit)) {
+      // the trial failed, open again with a longer duration
+      status.compareAndSet(current, trip(current));
+      return;
+    }
+    if (consecutiveFailures.incrementAndGet() >= failureThreshold
+        && status.compareAndSet(current, trip(current))) {
+      consecutiveFailures.set(0);
+    }
+  }
+
+  /**
+   * 结束许可: 试探请求未报告结果时 (如调用线程池已满, 或抛出 Error) 放弃试探, 不计为成功或失败.
+   * 已报告结果的许可属于旧的 epoch, 调用无影响
+   */
+  public void release(long permit) {
+    if (permit == REJECTED || !isTrial(permit)) {
+      return;
+    }
+    Status current = status.get();
+    if (current.epoch == epoch(permit) && current.trialInflight) {
+      status.compareAndSet(current, current.withTrial(false));
+    }
+  }
+
+  private Status trip(Status current) {
+    int shift = Math.min(current.trips, 30);
+    long openNanos = Math.min(maxOpenNanos, baseOpenNanos << shift);
+    long openUntilNanos = System.nanoTime() + (openNanos < 0 ? maxOpenNanos : openNanos);
+    return new Status(current.epoch + 1, true, openUntilNanos, current.trips + 1, false);
+  }
+
+  public State getState() {
+    Status current = status.get();
+    if (!current.open) {
+      return State.CLOSED;
+    }
+    return System.nanoTime() - current.openUntilNanos < 0 ? State.OPEN : State.HALF_OPEN;
+  }
+
+  /**
+   * 许可: 高位为 epoch, 最低位表示是否试探请求
+   */
+  private static long permit(long epoch, boolean trial) {
+    return epoch << 1 | (trial ? 1L : 0L);
+  }
+
+  private static long epoch(long permit) {
+    return permit >>> 1;
+  }
+
+  private static boolean isTrial(long permit) {
+    return (permit & 1L) != 0;
+  }
+
+  /**
+   * 熔断状态, 每次状态转换整体替换. trips 为连续熔断次数, 决定下次熔断时长
+   */
+  private static final class Status {
+
+    private final long epoch;
+    private final boolean open;
+    private final long openUntilNanos;
+    private final int trips;
+    private final boolean trialInflight;
+
+    Status(long epoch, boolean open, long openUntilNanos, int trips, boolean trialInflight) {
+      this.epoch = epoch;
+      this.open = open;
+      this.openUntilNanos = openUntilNanos;
+      this.trips = trips;
+      this.trialInflight = trialInflight;
+    }
+
+    Status withTrial(boolean trial) {
+      return new Status(epoch, open, openUntilNanos, trips, trial);
+    }
+  }
+}
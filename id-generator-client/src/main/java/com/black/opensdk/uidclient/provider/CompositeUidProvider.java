@@ -0,0 +1,311 @@
+package com.black.opensdk.uidclient.provider;
+
+import com.black.opensdk.uidclient.buffer.UidProvider;
+import com.black.opensdk.uidclient.exception.UidGenerateException;
+import com.black.opensdk.uidclient.util.NamingThreadFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import org.springframework.util.Assert;
+
+/**
+ * 组合多个相互独立的 uid provider (如两个uid服务集群), 分摊批量请求并在出错时切换.
+ *
+ * Every member has its own {@link CircuitBreaker} and an exponentially weighted moving average of
+ * its latency. Members with an open breaker are skipped, a failed call fails over to the next
+ * member, and {@link UidGenerateException} is thrown only when every member failed. Selection
+ * depends on the {@link Mode}. Members are expected to enforce their own timeouts, e.g. by
+ * wrapping them in {@link ResilientUidProvider}.
+ *
+ * @author chen
+ */
+public class CompositeUidProvider implements UidProvider {
+
+  private static final String RACER_NAME = "UidProvider-Racer";
+
+  /**
+   * 未采样的 provider 的初始耗时估计, 1毫秒
+   */
+  private static final long INITIAL_LATENCY_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+  /**
+   * RACE 模式默认最多同时进行的 provider 请求数
+   */
+  public static final int DEFAULT_MAX_CONCURRENT_CALLS = 16;
+
+  public enum Mode {
+    /**
+     * 按耗时倒数加权随机选择, 较快的 provider 承担更多请求
+     */
+    LATENCY_WEIGHTED,
+    /**
+     * 按顺序选择第一个可用的 provider, 其余作为备用
+     */
+    FAILOVER,
+    /**
+     * 批量请求同时发往所有可用 provider, 使用最先成功的结果, 其余请求被取消. 已完成的其余结果被丢弃
+     * (uid 不连续), 上游负载成倍
+     */
+    RACE
+  }
+
+  private final List<Member> members;
+  private final Mode mode;
+
+  /**
+   * RACE 模式的请求线程池, 线程数有上限, 没有空闲线程的 provider 不参与本次竞速
+   */
+  private final ThreadPoolExecutor racers;
+
+  public CompositeUidProvider(List<? extends UidProvider> providers) {
+    this(providers, Mode.LATENCY_WEIGHTED);
+  }
+
+  public CompositeUidProvider(List<? extends UidProvider> providers, Mode mode) {
+    this(providers, mode, DEFAULT_MAX_CONCURRENT_CALLS);
+  }
+
+  /**
+   * @param providers independent providers
+   * @param mode selection mode
+   * @param maxConcurrentCalls max count of provider calls in flight in RACE mode
+   */
+  public CompositeUidProvider(List<? extends UidProvider> providers, Mode mode,
+      int maxConcurrentCalls) {
+    Assert.notEmpty(providers, "Providers Can Not Be Empty!");
+    Assert.notNull(mode, "Mode Can Not Be Null!");
+    Assert.isTrue(maxConcurrentCalls > 0, "Max concurrent calls must positive!");
+    this.members = new ArrayList<>(providers.size());
+    for (UidProvider provider : providers) {
+      Assert.notNull(provider, "Provider Can Not Be Null!");
+      members.add(new Member(provider));
+    }
+    this.mode = mode;
+    this.racers = mode == Mode.RACE
+        ? new ThreadPoolExecutor(0, maxConcurrentCalls, 60, TimeUnit.SECONDS,
+        new SynchronousQueue<>(), new NamingThreadFactory(RACER_NAME, true)) : null;
+  }
+
+  @Override
+  public List<Long> provide(int count) {
+    long[] uids = provideArray(count);
+    List<Long> uidList = new ArrayList<>(uids.length);
+    for (long uid : uids) {
+      uidList.add(uid);
+    }
+    return uidList;
+  }
+
+  @Override
+  public long[] provideArray(int count) {
+    if (mode == Mode.RACE) {
+      return race(count);
+    }
+    return invoke(provider -> provider.provideArray(count));
+  }
+
+  /**
+   * 单个获取不竞速, RACE 模式下按耗时加权选择
+   */
+  @Override
+  public Long provide() {
+    return invoke(UidProvider::provide);
+  }
+
+  /**
+   * 选择一个 provider 调用, 失败时切换到下一个, 每个 provider 最多调用一次
+   */
+  private <T> T invoke(Function<UidProvider, T> call) {
+    boolean[] tried = new boolean[members.size()];
+    RuntimeException failure = null;
+    for (int i = 0; i < members.size(); i++) {
+      int index = select(tried);
+      if (index < 0) {
+        break;
+      }
+      tried[index] = true;
+      Member member = members.get(index);
+      long permit = member.circuitBreaker.tryAcquire();
+      if (permit == CircuitBreaker.REJECTED) {
+        continue;
+      }
+      try {
+        return member.call(permit, call, null);
+      } catch (RuntimeException e) {
+        failure = e;
+      }
+    }
+    throw new UidGenerateException("All uid providers failed!", failure);
+  }
+
+  /**
+   * @return index of the next member to call, -1 if every available member has been tried
+   */
+  private int select(boolean[] tried) {
+    if (mode == Mode.FAILOVER) {
+      for (int i = 0; i < members.size(); i++) {
+        if (!tried[i] && members.get(i).isAvailable()) {
+          return i;
+        }
+      }
+      return -1;
+    }
+
+    double[] weights = new double[members.size()];
+    double total = 0D;
+    for (int i = 0; i < members.size(); i++) {
+      if (!tried[i] && members.get(i).isAvailable()) {
+        weights[i] = 1D / members.get(i).latencyNanos.get();
+        total += weights[i];
+      }
+    }
+    if (total <= 0D) {
+      return -1;
+    }
+    double random = ThreadLocalRandom.current().nextDouble(total);
+    int last = -1;
+    for (int i = 0; i < weights.length; i++) {
+      if (weights[i] > 0D) {
+        last = i;
+        random -= weights[i];
+        if (random < 0D) {
+          return i;
+        }
+      }
+    }
+    return last;
+  }
+
+  /**
+   * 同时请求所有可用的 provider, 返回最先成功的结果并取消其余请求. 被取消的请求不计入熔断
+   */
+  private long[] race(int count) {
+    CompletionService<long[]> completionService = new ExecutorCompletionService<>(racers);
+    List<Future<long[]>> futures = new ArrayList<>(members.size());
+    AtomicBoolean finished = new AtomicBoolean(false);
+    for (Member member : members) {
+      long permit = member.isAvailable() ? member.circuitBreaker.tryAcquire()
+          : CircuitBreaker.REJECTED;
+      if (permit == CircuitBreaker.REJECTED) {
+        continue;
+      }
+      try {
+        futures.add(completionService.submit(
+            () -> member.call(permit, provider -> provider.provideArray(count), finished)));
+      } catch (RejectedExecutionException e) {
+        // no racer thread left, the member loses this race without reaching the provider
+        member.circuitBreaker.release(permit);
+      }
+    }
+    if (futures.isEmpty()) {
+      throw new UidGenerateException("No available uid provider!");
+    }
+
+    Throwable failure = null;
+    try {
+      for (int i = 0; i < futures.size(); i++) {
+        try {
+          return completionService.take().get();
+        } catch (ExecutionException e) {
+          failure = e.getCause();
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new UidGenerateException("Interrupted while racing uid providers", e);
+    } finally {
+      finished.set(true);
+      for (Future<long[]> future : futures) {
+        future.cancel(true);
+      }
+    }
+    throw new UidGenerateException("All uid providers failed!", failure);
+  }
+
+  /**
+   * 关闭 RACE 模式的请求线程池
+   */
+  public void shutdown() {
+    if (racers != null) {
+      racers.shutdownNow();
+    }
+  }
+
+  /**
+   * Getters
+   */
+  public Mode getMode() {
+    return mode;
+  }
+
+  public int getProviderCount() {
+    return members.size();
+  }
+
+  /**
+   * @return latency moving average of the provider at index, unit as nanoseconds
+   */
+  public long getLatencyNanos(int index) {
+    return members.get(index).latencyNanos.get();
+  }
+
+  public CircuitBreaker getCircuitBreaker(int index) {
+    return members.get(index).circuitBreaker;
+  }
+
+  /**
+   * 组合中的一个 provider, 包括熔断器和耗时移动平均
+   */
+  private static final class Member {
+
+    private final UidProvider provider;
+    private final CircuitBreaker circuitBreaker = new CircuitBreaker(3, 100, 10_000,
+        TimeUnit.MILLISECONDS);
+    private final AtomicLong latencyNanos = new AtomicLong(INITIAL_LATENCY_NANOS);
+
+    Member(UidProvider provider) {
+      this.provider = provider;
+    }
+
+    boolean isAvailable() {
+      return circuitBreaker.getState() != CircuitBreaker.State.OPEN;
+    }
+
+    /**
+     * 调用 provider 并记录结果
+     *
+     * @param permit permit of circuitBreaker for this call
+     * @param finished set when the race is over, a racer failing afterwards was cancelled and is
+     * not counted as failure. null when not racing
+     */
+    <T> T call(long permit, Function<UidProvider, T> call, AtomicBoolean finished) {
+      long startNanos = System.nanoTime();
+      try {
+        T result = call.apply(provider);
+        circuitBreaker.onSuccess(permit);
+        long elapsed = Math.max(1L, System.nanoTime() - startNanos);
+        // moving average with weight 1/8
+        latencyNanos.updateAndGet(old -> Math.max(1L, old + ((elapsed - old) >> 3)));
+        return result;
+      } catch (RuntimeException e) {
+        if (finished == null || !finished.get()) {
+          circuitBreaker.onFailure(permit);
+        }
+        throw e;
+      } finally {
+        circuitBreaker.release(permit);
+      }
+    }
+  }
+}
@@ -0,0 +1,407 @@
+package com.black.opensdk.uidclient.provider;
+
+import com.black.opensdk.uidclient.buffer.UidProvider;
+import com.black.opensdk.uidclient.exception.UidGenerateException;
+import com.black.opensdk.uidclient.metrics.LatencyHistogram;
+import com.black.opensdk.uidclient.util.NamingThreadFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import org.springframework.util.Assert;
+
+/**
+ * 为 {@link UidProvider} 增加超时, 对冲请求, 重试退避和熔断.
+ *
+ * <ul>
+ * <li>Every call runs in a bounded pool and is cancelled after its timeout.</li>
+ * <li>A batch call which has not finished after the {@code hedgePercentile} latency of recent
+ * successful batches is duplicated once, the first successful result wins and the other one is
+ * cancelled. A hedged batch which completes anyway is discarded, so hedging may leave gaps in
+ * the uid sequence but never duplicates.</li>
+ * <li>Failed batch calls (from the padding thread) are retried with exponential backoff.</li>
+ * <li>While the {@link CircuitBreaker} is open every call fails fast without reaching the
+ * provider, so caller threads falling back to {@link #provide()} do not multiply the load on a
+ * failing provider.</li>
+ * </ul>
+ *
+ * @author chen
+ */
+public class ResilientUidProvider implements UidProvider {
+
+  private static final String CALLER_NAME = "UidProvider-Caller";
+
+  /**
+   * 默认: 单个请求超时100毫秒, 批量请求超时1秒, 按P95对冲, 批量最多请求3次
+   */
+  public static final long DEFAULT_TIMEOUT_MILLIS = 100L;
+  public static final long DEFAULT_BATCH_TIMEOUT_MILLIS = 1000L;
+  public static final double DEFAULT_HEDGE_PERCENTILE = 95D;
+  public static final int DEFAULT_MAX_ATTEMPTS = 3;
+  public static final long DEFAULT_BACKOFF_MILLIS = 10L;
+  public static final long DEFAULT_MAX_BACKOFF_MILLIS = 1000L;
+  public static final int DEFAULT_MAX_CONCURRENT_CALLS = 16;
+
+  /**
+   * 样本数不足时不对冲
+   */
+  private static final long MIN_HEDGE_SAMPLES = 20L;
+
+  /**
+   * 对冲延迟只参考最近两个窗口的耗时, 每个窗口256次批量请求. 按次数而不是按时间轮换,
+   * 批量请求较少时窗口也能积累足够的样本
+   */
+  private static final long LATENCY_WINDOW_SAMPLES = 256L;
+
+  private final UidProvider delegate;
+
+  private final ThreadPoolExecutor callers;
+
+  private CircuitBreaker circuitBreaker = new CircuitBreaker(5, 100, 10_000,
+      TimeUnit.MILLISECONDS);
+
+  private final LatencyHistogram batchLatency = new LatencyHistogram();
+
+  /**
+   * 当前窗口和上一窗口的批量耗时, 当前窗口写满时轮换, 对冲延迟跟随最近的耗时变化
+   */
+  private volatile LatencyHistogram currentLatency = new LatencyHistogram();
+  private volatile LatencyHistogram previousLatency = new LatencyHistogram();
+
+  private long timeoutNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_TIMEOUT_MILLIS);
+  private long batchTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_BATCH_TIMEOUT_MILLIS);
+
+  /**
+   * 对冲延迟的百分位, 0 表示不对冲
+   */
+  private double hedgePercentile = DEFAULT_HEDGE_PERCENTILE;
+
+  private int maxAttempts = DEFAULT_MAX_ATTEMPTS;
+  private long backoffNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_BACKOFF_MILLIS);
+  private long maxBackoffNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_MAX_BACKOFF_MILLIS);
+
+  private final AtomicLong hedgedCalls = new AtomicLong(0);
+  private final AtomicLong timeouts = new AtomicLong(0);
+  private final AtomicLong shortCircuits = new AtomicLong(0);
+
+  public ResilientUidProvider(UidProvider delegate) {
+    this(delegate, DEFAULT_MAX_CONCURRENT_CALLS);
+  }
+
+  /**
+   * @param delegate the provider to protect
+   * @param maxConcurrentCalls max count of provider calls in flight, hedges included
+   */
+  public ResilientUidProvider(UidProvider delegate, int maxConcurrentCalls) {
+    Assert.notNull(delegate, "Provider Can Not Be Null!");
+    Assert.isTrue(maxConcurrentCalls > 0, "Max concurrent calls must positive!");
+    this.delegate = delegate;
+    this.callers = new ThreadPoolExecutor(0, maxConcurrentCalls, 60, TimeUnit.SECONDS,
+        new SynchronousQueue<>(), new NamingThreadFactory(CALLER_NAME, true));
+  }
+
+  @Override
+  public List<Long> provide(int count) {
+    long[] uids = provideArray(count);
+    List<Long> uidList = new ArrayList<>(uids.length);
+    for (long uid : uids) {
+      uidList.add(uid);
+    }
+    return uidList;
+  }
+
+  /**
+   * 批量获取, 失败时退避重试, 超过对冲延迟时发起对冲请求
+   */
+  @Override
+  public long[] provideArray(int count) {
+    long backoff = backoffNanos;
+    for (int attempt = 1; ; attempt++) {
+      try {
+        return call(() -> delegate.provideArray(count), batchTimeoutNanos, true);
+      } catch (UidGenerateException e) {
+        if (attempt >= maxAttempts || circuitBreaker.getState() == CircuitBreaker.State.OPEN) {
+          throw e;
+        }
+      }
+      try {
+        TimeUnit.NANOSECONDS.sleep(backoff);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new UidGenerateException("Interrupted while backing off", e);
+      }
+      backoff = Math.min(maxBackoffNanos, backoff << 1);
+    }
+  }
+
+  /**
+   * 单个获取, 由调用线程直接调用, 不重试不对冲
+   */
+  @Override
+  public Long provide() {
+    return call(delegate::provide, timeoutNanos, false);
+  }
+
+  private <T> T call(Callable<T> task, long timeout, boolean hedging) {
+    CircuitBreaker breaker = circuitBreaker;
+    long permit = breaker.tryAcquire();
+    if (permit == CircuitBreaker.REJECTED) {
+      shortCircuits.incrementAndGet();
+      throw new UidGenerateException("Provider circuit is open!");
+    }
+    try {
+      T result = hedging ? hedgedCall(task, timeout) : timedCall(task, timeout);
+      breaker.onSuccess(permit);
+      return result;
+    } catch (SaturatedException e) {
+      // the call did not reach the provider, saturation says nothing about its health
+      throw e;
+    } catch (UidGenerateException e) {
+      breaker.onFailure(permit);
+      throw e;
+    } finally {
+      breaker.release(permit);
+    }
+  }
+
+  private <T> T timedCall(Callable<T> task, long timeout) {
+    Future<T> future = submit(task);
+    try {
+      return future.get(timeout, TimeUnit.NANOSECONDS);
+    } catch (TimeoutException e) {
+      timeouts.incrementAndGet();
+      throw new UidGenerateException("Provider call timeout!", e);
+    } catch (ExecutionException e) {
+      throw new UidGenerateException("Provider call error!", e.getCause());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new UidGenerateException("Interrupted while calling provider", e);
+    } finally {
+      future.cancel(true);
+    }
+  }
+
+  /**
+   * 发起请求, 超过对冲延迟未完成时再发起一次, 返回第一个成功的结果
+   */
+  private <T> T hedgedCall(Callable<T> task, long timeout) {
+    long hedgeDelay = hedgeDelayNanos();
+    if (hedgeDelay <= 0 || hedgeDelay >= timeout) {
+      long startNanos = System.nanoTime();
+      T result = timedCall(task, timeout);
+      recordBatchLatency(System.nanoTime() - startNanos);
+      return result;
+    }
+
+    CompletionService<T> completionService = new ExecutorCompletionService<>(callers);
+    List<Future<T>> futures = new ArrayList<>(2);
+    // submit time of the primary and the hedge, latency is recorded for the winner only
+    long[] startNanos = new long[2];
+    long deadline = System.nanoTime() + timeout;
+    Throwable failure = null;
+    try {
+      startNanos[0] = System.nanoTime();
+      futures.add(submit(completionService, task));
+      int pending = 1;
+      boolean hedged = false;
+      while (pending > 0 || !hedged) {
+        long now = System.nanoTime();
+        if (now - deadline >= 0) {
+          timeouts.incrementAndGet();
+          throw new UidGenerateException("Provider call timeout!", failure);
+        }
+        // wait for the hedge delay first, then for the rest of the timeout
+        long wait = hedged ? deadline - now : Math.min(deadline - now, hedgeDelay);
+        Future<T> done = pending > 0 ? completionService.poll(wait, TimeUnit.NANOSECONDS) : null;
+        if (done == null) {
+          if (hedged) {
+            continue;
+          }
+          hedged = true;
+          startNanos[1] = System.nanoTime();
+          if (submitHedge(completionService, task, futures)) {
+            pending++;
+          }
+          continue;
+        }
+        pending--;
+        try {
+          T result = done.get();
+          recordBatchLatency(System.nanoTime() - startNanos[futures.indexOf(done)]);
+          return result;
+        } catch (ExecutionException e) {
+          failure = e.getCause();
+          if (!hedged) {
+            // the primary failed before the hedge delay, let the retry handle it
+            break;
+          }
+        }
+      }
+      throw new UidGenerateException("Provider call error!", failure);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new UidGenerateException("Interrupted while calling provider", e);
+    } finally {
+      for (Future<T> future : futures) {
+        future.cancel(true);
+      }
+    }
+  }
+
+  private <T> boolean submitHedge(CompletionService<T> completionService, Callable<T> task,
+      List<Future<T>> futures) {
+    try {
+      futures.add(completionService.submit(task));
+      hedgedCalls.incrementAndGet();
+      return true;
+    } catch (RejectedExecutionException e) {
+      // no capacity for a hedge, keep waiting for the primary
+      return false;
+    }
+  }
+
+  private <T> Future<T> submit(Callable<T> task) {
+    try {
+      return callers.submit(task);
+    } catch (RejectedExecutionException e) {
+      throw new SaturatedException(e);
+    }
+  }
+
+  private <T> Future<T> submit(CompletionService<T> completionService, Callable<T> task) {
+    try {
+      return completionService.submit(task);
+    } catch (RejectedExecutionException e) {
+      throw new SaturatedException(e);
+    }
+  }
+
+  private void recordBatchLatency(long nanos) {
+    LatencyHistogram current = currentLatency;
+    current.record(nanos);
+    batchLatency.record(nanos);
+    if (current.getCount() >= LATENCY_WINDOW_SAMPLES) {
+      rotateLatency(current);
+    }
+  }
+
+  /**
+   * 当前窗口写满, 成为上一窗口. 轮换后写入旧窗口的样本仍计入上一窗口
+   */
+  private synchronized void rotateLatency(LatencyHistogram full) {
+    if (currentLatency == full) {
+      previousLatency = full;
+      currentLatency = new LatencyHistogram();
+    }
+  }
+
+  /**
+   * @return hedge delay by the latency percentile of recent batches, 0 means no hedging
+   */
+  private long hedgeDelayNanos() {
+    if (hedgePercentile <= 0) {
+      return 0L;
+    }
+    LatencyHistogram current = currentLatency;
+    LatencyHistogram previous = previousLatency;
+    if (current.getCount() + previous.getCount() < MIN_HEDGE_SAMPLES) {
+      return 0L;
+    }
+    return LatencyHistogram.getPercentile(hedgePercentile, current, previous);
+  }
+
+  /**
+   * 关闭调用线程池, 进行中的调用被中断
+   */
+  public void shutdown() {
+    callers.shutdownNow();
+  }
+
+  /**
+   * Getters
+   */
+  public UidProvider getDelegate() {
+    return delegate;
+  }
+
+  public CircuitBreaker getCircuitBreaker() {
+    return circuitBreaker;
+  }
+
+  /**
+   * @return latency of successful batches since creation, hedging uses recent windows only
+   */
+  public LatencyHistogram getBatchLatency() {
+    return batchLatency;
+  }
+
+  public long getHedgedCallCount() {
+    return hedgedCalls.get();
+  }
+
+  public long getTimeoutCount() {
+    return timeouts.get();
+  }
+
+  public long getShortCircuitCount() {
+    return shortCircuits.get();
+  }
+
+  /**
+   * Setters
+   */
+  public void setCircuitBreaker(CircuitBreaker circuitBreaker) {
+    Assert.notNull(circuitBreaker, "Circuit Breaker Can Not Be Null!");
+    this.circuitBreaker = circuitBreaker;
+  }
+
+  public void setTimeout(long timeout, TimeUnit unit) {
+    Assert.isTrue(timeout > 0, "Timeout must positive!");
+    this.timeoutNanos = unit.toNanos(timeout);
+  }
+
+  public void setBatchTimeout(long timeout, TimeUnit unit) {
+    Assert.isTrue(timeout > 0, "Timeout must positive!");
+    this.batchTimeoutNanos = unit.toNanos(timeout);
+  }
+
+  /**
+   * @param hedgePercentile in [0, 100), 0 disables hedging
+   */
+  public void setHedgePercentile(double hedgePercentile) {
+    Assert.isTrue(hedgePercentile >= 0 && hedgePercentile < 100, "Percentile must 0 - 100");
+    this.hedgePercentile = hedgePercentile;
+  }
+
+  public void setMaxAttempts(int maxAttempts) {
+    Assert.isTrue(maxAttempts > 0, "Max attempts must positive!");
+    this.maxAttempts = maxAttempts;
+  }
+
+  public void setBackoff(long backoff, long maxBackoff, TimeUnit unit) {
+    Assert.isTrue(backoff > 0 && maxBackoff >= backoff, "Backoff must positive!");
+    this.backoffNanos = unit.toNanos(backoff);
+    this.maxBackoffNanos = unit.toNanos(maxBackoff);
+  }
+
+  /**
+   * 调用线程池已满, 请求未发往 provider, 不计入熔断
+   */
+  private static final class SaturatedException extends UidGenerateException {
+
+    private static final long serialVersionUID = -2091571620337455370L;
+
+    SaturatedException(RejectedExecutionException cause) {
+      super("Too many provider calls in flight!", cause);
+    }
+  }
+}
@@ -0,0 +1,105 @@
+package com.black.opensdk.uidclient.util;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+
+
+/**
+ * 限流日志, 每个时间间隔最多输出一条, 被丢弃的条数附加在下一条日志中.
+ *
+ * Used for events which may happen on every take/put (rejections, fallbacks, padding rounds), so
+ * that a drained or overflowing buffer never floods the log pipeline. Callers which have to box
+ * or build arguments should check {@link #acquire()} first, so suppressed events allocate nothing.
+ */
+public class RateLimitedLogger {
+
+  /**
+   * 默认每10秒最多输出一条
+   */
+  public static final long DEFAULT_INTERVAL_SECONDS = 10L;
+
+  private final Logger logger;
+  private final long intervalNanos;
+
+  /**
+   * 下一次允许输出的时间, 和上一次输出后被丢弃的条数
+   */
+  private final AtomicLong nextNanos;
+  private final AtomicLong suppressed = new AtomicLong(0);
+
+  /**
+   * Constructors
+   */
+  public RateLimitedLogger(Logger logger) {
+    this(logger, DEFAULT_INTERVAL_SECONDS, TimeUnit.SECONDS);
+  }
+
+  public RateLimitedLogger(Logger logger, long interval, TimeUnit unit) {
+    this.logger = logger;
+    this.intervalNanos = unit.toNanos(interval);
+    this.nextNanos = new AtomicLong(System.nanoTime());
+  }
+
+  /**
+   * 判断本次事件是否可以输出.
+   *
+   * @return count of events suppressed since the last logged one, or -1 if this event should be
+   * suppressed
+   */
+  public long acquire() {
+    long now = System.nanoTime();
+    long next = nextNanos.get();
+    if (now - next < 0 || !nextNanos.compareAndSet(next, now + intervalNanos)) {
+      suppressed.incrementAndGet();
+      return -1L;
+    }
+    return suppressed.getAndSet(0);
+  }
+
+  public void info(String format, Object arg) {
+    if (logger.isInfoEnabled()) {
+      long count = acquire();
+      if (count >= 0) {
+        logger.info(format + " (suppressed {})", arg, count);
+      }
+    }
+  }
+
+  public void warn(String format, Object arg) {
+    if (logger.isWarnEnabled()) {
+      long count = acquire();
+      if (count >= 0) {
+        logger.warn(format + " (suppressed {})", arg, count);
+      }
+    }
+  }
+
+  public void warn(String format, Object arg1, Object arg2) {
+    if (logger.isWarnEnabled()) {
+      long count = acquire();
+      if (count >= 0) {
+        logger.warn(format + " (suppressed {})", arg1, arg2, count);
+      }
+    }
+  }
+
+  /**
+   * 输出 WARN 日志并附带异常堆栈
+   */
+  public void warn(String msg, Throwable t) {
+    if (logger.isWarnEnabled()) {
+      long count = acquire();
+      if (count >= 0) {
+        logger.warn(msg + " (suppressed " + count + ")", t);
+      }
+    }
+  }
+
+  /**
+   * Getters
+   */
+  public Logger getLogger() {
+    return logger;
+  }
+}
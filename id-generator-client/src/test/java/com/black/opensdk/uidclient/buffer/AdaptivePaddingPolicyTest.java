@@ -0,0 +1,138 @@
+package com.black.opensdk.uidclient.buffer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+public class AdaptivePaddingPolicyTest {
+
+  private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+  private long now = 1000 * SECOND;
+
+  private final AdaptivePaddingPolicy policy = new AdaptivePaddingPolicy(2D, 1000L, () -> now);
+
+  @Test
+  public void lowTrafficKeepsFewUids() {
+    FakeBuffer buffer = new FakeBuffer(1000);
+    policy.recordProviderLatency(TimeUnit.MILLISECONDS.toNanos(10));
+    buffer.remaining = 800;
+    policy.beforePadding(buffer, 0);
+
+    // 100 uids/s, 10ms provider latency
+    now += SECOND;
+    buffer.remaining = 700;
+    policy.beforePadding(buffer, 0);
+
+    assertNear(2, buffer.getPaddingUnderThreshold());
+    assertNear(102, buffer.getPaddingUpperThreshold());
+    // well above the upper threshold, a refill asks for the minimum
+    assertEquals(1, policy.paddingNums(buffer));
+  }
+
+  @Test
+  public void highTrafficIsBoundedByTheConfiguredUpperRatio() {
+    FakeBuffer buffer = new FakeBuffer(1000);
+    policy.recordProviderLatency(TimeUnit.MILLISECONDS.toNanos(10));
+    buffer.remaining = 800;
+    policy.beforePadding(buffer, 0);
+
+    // 10000 uids/s, all refilled
+    now += SECOND;
+    policy.beforePadding(buffer, 10_000);
+    assertNear(200, buffer.getPaddingUnderThreshold());
+    assertEquals(800, buffer.getPaddingUpperThreshold());
+  }
+
+  @Test
+  public void boundFollowsTheCurrentBufferSize() {
+    FakeBuffer buffer = new FakeBuffer(1000);
+    policy.recordProviderLatency(TimeUnit.MILLISECONDS.toNanos(10));
+    buffer.remaining = 800;
+    policy.beforePadding(buffer, 0);
+    now += SECOND;
+    policy.beforePadding(buffer, 10_000);
+    assertEquals(800, buffer.getPaddingUpperThreshold());
+
+    buffer.resize(2000);
+    now += SECOND;
+    policy.beforePadding(buffer, 20_000);
+    assertNear(200, buffer.getPaddingUnderThreshold());
+    assertEquals(1600, buffer.getPaddingUpperThreshold());
+
+    buffer.resize(250);
+    buffer.remaining = 100;
+    now += SECOND;
+    policy.beforePadding(buffer, 30_000 + 700);
+    assertEquals(199, buffer.getPaddingUnderThreshold());
+    assertEquals(200, buffer.getPaddingUpperThreshold());
+  }
+
+  @Test
+  public void noAdjustmentBeforeTheFirstRateSample() {
+    FakeBuffer buffer = new FakeBuffer(1000);
+    policy.recordProviderLatency(TimeUnit.MILLISECONDS.toNanos(10));
+    buffer.remaining = 800;
+    policy.beforePadding(buffer, 0);
+    assertEquals(400, buffer.getPaddingUnderThreshold());
+    assertEquals(800, buffer.getPaddingUpperThreshold());
+    assertTrue(policy.paddingNums(buffer) >= 1);
+  }
+
+  /**
+   * 阈值由浮点数向上取整得到, 允许相差1
+   */
+  private static void assertNear(long expected, long actual) {
+    assertTrue("expected " + expected + " but was " + actual, Math.abs(expected - actual) <= 1);
+  }
+
+  /**
+   * 只记录剩余个数的缓冲区, resize 与 {@link ElasticBuffer} 一样按配置比例重置水位
+   */
+  private static final class FakeBuffer extends AbstractBuffer {
+
+    private long remaining;
+
+    FakeBuffer(int bufferSize) {
+      resize(bufferSize);
+    }
+
+    void resize(int bufferSize) {
+      this.bufferSize = bufferSize;
+      this.paddingUnderThreshold = bufferSize * DEFAULT_UNDER_PADDING_PERCENT / 100;
+      this.paddingUpperThreshold = bufferSize * DEFAULT_UPPER_PADDING_PERCENT / 100;
+    }
+
+    @Override
+    public boolean put(long uid) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public int putBatch(long[] uids, int offset, int length) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public int putBatch(LongRange range) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public int take(long[] dest, int count) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public int paddingNums() {
+      return (int) Math.max(0, bufferSize - remaining);
+    }
+
+    @Override
+    public boolean isNeedPadding() {
+      return remaining >= paddingUpperThreshold;
+    }
+  }
+}
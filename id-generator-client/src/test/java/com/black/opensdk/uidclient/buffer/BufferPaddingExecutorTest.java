@@ -0,0 +1,246 @@
+package com.black.opensdk.uidclient.buffer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.black.opensdk.uidclient.exception.BufferEmptyException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.Test;
+
+public class BufferPaddingExecutorTest {
+
+  @Test(timeout = 10_000)
+  public void inlineCompletedShortBatchesDoNotRecurse() {
+    ArrayBuffer buffer = new ArrayBuffer(1 << 16);
+    BufferPaddingExecutor executor = new BufferPaddingExecutor(buffer, TestBuffers.UNSUPPORTED,
+        false);
+    buffer.setBufferPaddingExecutor(executor);
+    AtomicLong next = new AtomicLong();
+    // one uid per request: a recursive pump would need ~50000 nested callbacks
+    executor.setAsyncUidProvider(
+        count -> CompletableFuture.completedFuture(new long[]{next.getAndIncrement()}));
+
+    executor.schedulePadding();
+    assertTrue(buffer.isNeedPadding());
+    assertEquals(next.get(), buffer.size());
+    executor.shutdown();
+  }
+
+  @Test(timeout = 10_000)
+  public void emptyBatchesStopPumping() {
+    ArrayBuffer buffer = new ArrayBuffer(1024);
+    BufferPaddingExecutor executor = new BufferPaddingExecutor(buffer, TestBuffers.UNSUPPORTED,
+        false);
+    buffer.setBufferPaddingExecutor(executor);
+    AtomicInteger requests = new AtomicInteger();
+    executor.setAsyncUidProvider(count -> {
+      requests.incrementAndGet();
+      return CompletableFuture.completedFuture(new long[0]);
+    });
+
+    executor.schedulePadding();
+    assertEquals(1, requests.get());
+    assertEquals(0, buffer.size());
+    executor.shutdown();
+  }
+
+  @Test(timeout = 10_000)
+  public void awaitTerminationWaitsForAsyncCompletions() throws Exception {
+    ArrayBuffer buffer = new ArrayBuffer(1024);
+    BufferPaddingExecutor executor = new BufferPaddingExecutor(buffer, TestBuffers.UNSUPPORTED,
+        false);
+    buffer.setBufferPaddingExecutor(executor);
+    CompletableFuture<long[]> pending = new CompletableFuture<>();
+    executor.setAsyncUidProvider(count -> pending);
+
+    executor.schedulePadding();
+    executor.shutdown();
+    assertFalse(executor.awaitTermination(50, TimeUnit.MILLISECONDS));
+
+    pending.complete(new long[]{1, 2, 3});
+    assertTrue(executor.awaitTermination(1, TimeUnit.SECONDS));
+    assertEquals(3, buffer.size());
+
+    // draining after shutdown requests padding, which is neither run nor counted as rejected
+    assertEquals(3, buffer.take(new long[8], 8));
+    assertFalse(executor.asyncPadding());
+    assertEquals(0, executor.getRejectedPaddingCount());
+  }
+
+  @Test(timeout = 2_000, expected = BufferEmptyException.class)
+  public void takeDoesNotWaitWhenPaddingIsRejected() {
+    ArrayBuffer buffer = new ArrayBuffer(16);
+    BufferPaddingExecutor executor = new BufferPaddingExecutor(buffer, TestBuffers.UNSUPPORTED,
+        false);
+    buffer.setBufferPaddingExecutor(executor);
+    executor.shutdown();
+
+    buffer.take(1, TimeUnit.MINUTES);
+  }
+
+  @Test(timeout = 10_000)
+  public void workerSurvivesAnError() throws Exception {
+    ArrayBuffer buffer = new ArrayBuffer(64);
+    AtomicInteger calls = new AtomicInteger();
+    BufferPaddingExecutor executor = new BufferPaddingExecutor(buffer, new UidProvider() {
+      @Override
+      public List<Long> provide(int count) {
+        throw new UnsupportedOperationException();
+      }
+
+      @Override
+      public long[] provideArray(int count) {
+        if (calls.getAndIncrement() == 0) {
+          throw new AssertionError("first padding fails");
+        }
+        long[] uids = new long[count];
+        for (int i = 0; i < count; i++) {
+          uids[i] = i;
+        }
+        return uids;
+      }
+
+      @Override
+      public Long provide() {
+        throw new UnsupportedOperationException();
+      }
+    }, false);
+    buffer.setBufferPaddingExecutor(executor);
+
+    assertTrue(executor.asyncPadding());
+    while (calls.get() == 0) {
+      Thread.sleep(1);
+    }
+    assertTrue(executor.asyncPadding());
+    while (!buffer.isNeedPadding()) {
+      Thread.sleep(1);
+    }
+    executor.shutdown();
+  }
+
+  @Test
+  public void sharedRejectionDoesNotSwallowLaterRequests() {
+    SharedPaddingScheduler scheduler = new SharedPaddingScheduler(1);
+    ArrayBuffer buffer = new ArrayBuffer(16);
+    BufferPaddingExecutor executor = new BufferPaddingExecutor(buffer, TestBuffers.UNSUPPORTED,
+        scheduler, false);
+    buffer.setBufferPaddingExecutor(executor);
+    scheduler.shutdown();
+
+    assertFalse(executor.asyncPadding());
+    assertFalse(executor.asyncPadding());
+    assertEquals(2, executor.getRejectedPaddingCount());
+    executor.shutdown();
+  }
+
+  @Test(timeout = 10_000)
+  public void pipelinedBatchesArePublishedInRequestOrder() {
+    int inflight = 4;
+    ArrayBuffer buffer = new ArrayBuffer(64);
+    CountDownLatch allInflight = new CountDownLatch(inflight);
+    ConcurrentSkipListSet<Long> fetchers = new ConcurrentSkipListSet<>();
+    BufferPaddingExecutor executor = new BufferPaddingExecutor(buffer, arrayProvider(count -> {
+      // fetcher threads are created in request order, so are their ids
+      long id = Thread.currentThread().getId();
+      fetchers.add(id);
+      allInflight.countDown();
+      try {
+        assertTrue(allInflight.await(5, TimeUnit.SECONDS));
+        int rank = fetchers.headSet(id).size();
+        // the first request completes last
+        TimeUnit.MILLISECONDS.sleep((inflight - rank) * 30L);
+        long[] uids = new long[count];
+        for (int i = 0; i < count; i++) {
+          uids[i] = rank * 100L + i;
+        }
+        return uids;
+      } catch (InterruptedException e) {
+        throw new IllegalStateException(e);
+      }
+    }), false);
+    buffer.setBufferPaddingExecutor(executor);
+    executor.setMaxInflightRequests(inflight);
+
+    executor.paddingBuffer();
+    executor.shutdown();
+    assertEquals(inflight, fetchers.size());
+    assertEquals(64, buffer.size());
+    long[] uids = new long[64];
+    assertEquals(64, buffer.take(uids, 64));
+    for (int i = 1; i < uids.length; i++) {
+      assertTrue(uids[i - 1] < uids[i]);
+    }
+  }
+
+  @Test(timeout = 10_000)
+  public void pipelinedRequestsAreTrimmedToTheFreeCapacity() {
+    ArrayBuffer buffer = new ArrayBuffer(64);
+    AtomicLong requested = new AtomicLong();
+    AtomicLong next = new AtomicLong();
+    BufferPaddingExecutor executor = new BufferPaddingExecutor(buffer, arrayProvider(count -> {
+      requested.addAndGet(count);
+      long[] uids = new long[count];
+      for (int i = 0; i < count; i++) {
+        uids[i] = next.getAndIncrement();
+      }
+      return uids;
+    }), false);
+    AtomicInteger rejected = new AtomicInteger();
+    buffer.setRejectedPutHandler((b, uid) -> rejected.incrementAndGet());
+    buffer.setBufferPaddingExecutor(executor);
+    executor.setMaxInflightRequests(2);
+    // a count computed before the buffer was partly filled elsewhere
+    executor.setPaddingPolicy(new PaddingPolicy() {
+      @Override
+      public void beforePadding(AbstractBuffer buffer, long paddedUids) {
+      }
+
+      @Override
+      public int paddingNums(AbstractBuffer buffer) {
+        return 100;
+      }
+
+      @Override
+      public void recordProviderLatency(long latencyNanos) {
+      }
+    });
+
+    executor.paddingBuffer();
+    executor.shutdown();
+    assertEquals(64, buffer.size());
+    assertEquals(64, requested.get());
+    assertEquals(0, rejected.get());
+  }
+
+  private static UidProvider arrayProvider(ArrayProvider provider) {
+    return new UidProvider() {
+      @Override
+      public List<Long> provide(int count) {
+        throw new UnsupportedOperationException();
+      }
+
+      @Override
+      public long[] provideArray(int count) {
+        return provider.provideArray(count);
+      }
+
+      @Override
+      public Long provide() {
+        throw new UnsupportedOperationException();
+      }
+    };
+  }
+
+  @FunctionalInterface
+  private interface ArrayProvider {
+
+    long[] provideArray(int count);
+  }
+}
@@ -0,0 +1,43 @@
+package com.black.opensdk.uidclient.buffer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import com.black.opensdk.uidclient.exception.BufferEmptyException;
+import org.junit.Test;
+
+public class DoubleBufferTest {
+
+  @Test
+  public void swapsToStandbyWhenActiveIsDrained() {
+    DoubleBuffer buffer = TestBuffers.withoutPadding(new DoubleBuffer(4, 20, 80));
+    assertEquals(4, buffer.putBatch(new LongRange(0, 6)));
+    assertFalse("standby is full", buffer.put(4));
+
+    // the first take swaps the filled standby in, the drained half becomes the new standby
+    assertEquals(0, buffer.take());
+    assertEquals(4, buffer.putBatch(new LongRange(10, 4)));
+    assertEquals(7, buffer.size());
+
+    long[] dest = new long[8];
+    assertEquals(7, buffer.take(dest, 8));
+    assertEquals(3, dest[2]);
+    assertEquals(10, dest[3]);
+    assertEquals(13, dest[6]);
+    assertEquals(0, buffer.size());
+  }
+
+  @Test(expected = BufferEmptyException.class)
+  public void takeFromEmptyBufferIsRejected() {
+    TestBuffers.withoutPadding(new DoubleBuffer(4)).take();
+  }
+
+  @Test(timeout = 60_000)
+  public void concurrentProducersAndConsumersNeitherDuplicateNorLose() throws Exception {
+    DoubleBuffer buffer = TestBuffers.withoutPadding(new DoubleBuffer(32));
+    buffer.setRejectedPutHandler((b, uid) -> {
+    });
+    TestBuffers.assertNoDuplicateNoLoss(buffer, 4, 4, 50_000);
+    assertEquals(0, buffer.size());
+  }
+}
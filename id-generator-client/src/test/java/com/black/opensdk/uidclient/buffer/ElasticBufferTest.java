@@ -0,0 +1,85 @@
+package com.black.opensdk.uidclient.buffer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.Test;
+
+public class ElasticBufferTest {
+
+  @Test
+  public void growsWhenAlmostDrainedAndKeepsRetiredUids() {
+    ElasticBuffer buffer = TestBuffers.withoutPadding(new ElasticBuffer(32, 8, 128));
+    assertEquals(32, buffer.putBatch(new LongRange(1, 32)));
+    for (long uid = 1; uid <= 30; uid++) {
+      assertEquals(uid, buffer.take());
+    }
+
+    buffer.beforePadding();
+    assertEquals(32, buffer.getBufferSize());
+    buffer.beforePadding();
+    assertEquals(64, buffer.getBufferSize());
+
+    // the new ring takes the whole new capacity, the retired ring is taken first
+    assertEquals(64, buffer.putBatch(new LongRange(100, 64)));
+    assertEquals(66, buffer.size());
+    assertEquals(31, buffer.take());
+    assertEquals(32, buffer.take());
+    for (long uid = 100; uid < 164; uid++) {
+      assertEquals(uid, buffer.take());
+    }
+    assertEquals(0, buffer.size());
+  }
+
+  @Test
+  public void shrinksAtLowWaterWithoutSchedule() {
+    ElasticBuffer buffer = TestBuffers.withoutPadding(new ElasticBuffer(64, 16, 64, 40, 80));
+    assertEquals(64, buffer.putBatch(new LongRange(0, 64)));
+    long[] dest = new long[64];
+    // drain just below the under threshold, as when a take triggers padding
+    int taken = buffer.take(dest, 64 - buffer.getPaddingUnderThreshold() + 1);
+
+    for (int round = 0; round < 3; round++) {
+      buffer.beforePadding();
+    }
+    assertEquals(32, buffer.getBufferSize());
+
+    long remaining = buffer.size();
+    assertEquals(remaining, buffer.take(dest, 64));
+    assertEquals(64, taken + remaining);
+    assertTrue(buffer.toString().contains("retired=null"));
+  }
+
+  @Test
+  public void doesNotShrinkWhenDrainedBetweenPaddings() {
+    ElasticBuffer buffer = TestBuffers.withoutPadding(new ElasticBuffer(64, 16, 64, 40, 80));
+    for (int round = 0; round < 5; round++) {
+      buffer.putBatch(new LongRange(round * 64L, 64));
+      buffer.take(new long[64], 60);
+      buffer.beforePadding();
+      buffer.take(new long[64], 64);
+    }
+    assertEquals(64, buffer.getBufferSize());
+  }
+
+  @Test(timeout = 60_000)
+  public void resizingUnderLoadNeitherDuplicatesNorLoses() throws Exception {
+    ElasticBuffer buffer = TestBuffers.withoutPadding(new ElasticBuffer(64, 16, 256));
+    AtomicBoolean stopped = new AtomicBoolean(false);
+    Thread resizer = new Thread(() -> {
+      while (!stopped.get()) {
+        buffer.beforePadding();
+        Thread.yield();
+      }
+    });
+    resizer.start();
+    try {
+      TestBuffers.assertNoDuplicateNoLoss(buffer, 4, 4, 50_000);
+    } finally {
+      stopped.set(true);
+      resizer.join();
+    }
+    assertEquals(0, buffer.size());
+  }
+}
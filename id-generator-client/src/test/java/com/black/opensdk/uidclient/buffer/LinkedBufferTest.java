@@ -0,0 +1,50 @@
+package com.black.opensdk.uidclient.buffer;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+
+public class LinkedBufferTest {
+
+  @Test(timeout = 60_000)
+  public void concurrentPutBatchesNeverExceedBufferSize() throws Exception {
+    LinkedBuffer buffer = TestBuffers.withoutPadding(new LinkedBuffer(1000));
+    buffer.setRejectedPutHandler((b, uid) -> {
+    });
+    CountDownLatch start = new CountDownLatch(1);
+    AtomicInteger accepted = new AtomicInteger();
+    Thread[] producers = new Thread[8];
+    for (int p = 0; p < producers.length; p++) {
+      long base = p * 10_000L;
+      producers[p] = new Thread(() -> {
+        try {
+          start.await();
+        } catch (InterruptedException e) {
+          return;
+        }
+        for (int i = 0; i < 100; i++) {
+          accepted.addAndGet(buffer.putBatch(new LongRange(base + i * 7, 7)));
+        }
+      });
+      producers[p].start();
+    }
+    start.countDown();
+    for (Thread producer : producers) {
+      producer.join();
+    }
+
+    assertEquals(1000, accepted.get());
+    assertEquals(0, buffer.paddingNums());
+    assertEquals(1000, buffer.take(new long[2000], 2000));
+  }
+
+  @Test(timeout = 60_000)
+  public void concurrentProducersAndConsumersNeitherDuplicateNorLose() throws Exception {
+    LinkedBuffer buffer = TestBuffers.withoutPadding(new LinkedBuffer(64));
+    buffer.setRejectedPutHandler((b, uid) -> {
+    });
+    TestBuffers.assertNoDuplicateNoLoss(buffer, 4, 4, 20_000);
+  }
+}
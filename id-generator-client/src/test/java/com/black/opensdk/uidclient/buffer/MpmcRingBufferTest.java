@@ -0,0 +1,68 @@
+package com.black.opensdk.uidclient.buffer;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.black.opensdk.uidclient.exception.BufferEmptyException;
+import org.junit.Test;
+
+public class MpmcRingBufferTest {
+
+  @Test
+  public void takesInPutOrder() {
+    MpmcRingBuffer buffer = TestBuffers.withoutPadding(new MpmcRingBuffer(8, 20, 80));
+    for (long uid = 1; uid <= 8; uid++) {
+      assertTrue(buffer.put(uid));
+    }
+    assertFalse("buffer is full", buffer.put(9));
+    for (long uid = 1; uid <= 8; uid++) {
+      assertEquals(uid, buffer.take());
+    }
+    assertEquals(0, buffer.size());
+  }
+
+  @Test(expected = BufferEmptyException.class)
+  public void takeFromEmptyBufferIsRejected() {
+    TestBuffers.withoutPadding(new MpmcRingBuffer(8, 20, 80)).take();
+  }
+
+  @Test
+  public void putBatchAcceptsOnlyFreeSlots() {
+    MpmcRingBuffer buffer = TestBuffers.withoutPadding(new MpmcRingBuffer(8, 20, 80));
+    assertEquals(5, buffer.putBatch(new long[]{1, 2, 3, 4, 5}, 0, 5));
+    assertEquals(3, buffer.putBatch(new long[]{6, 7, 8, 9, 10}, 0, 5));
+    assertEquals(0, buffer.paddingNums());
+    assertEquals(8, buffer.putBatch(new LongRange(100, 8)) + 8);
+
+    long[] dest = new long[10];
+    assertEquals(8, buffer.take(dest, 10));
+    assertArrayEquals(new long[]{1, 2, 3, 4, 5, 6, 7, 8, 0, 0}, dest);
+    assertEquals(8, buffer.putBatch(new LongRange(100, 8)));
+    assertEquals(100, buffer.take());
+  }
+
+  @Test
+  public void wrapsAroundManyTimes() {
+    MpmcRingBuffer buffer = TestBuffers.withoutPadding(new MpmcRingBuffer(4, 20, 80));
+    long[] dest = new long[3];
+    long next = 0;
+    long expected = 0;
+    for (int round = 0; round < 1000; round++) {
+      next += buffer.putBatch(new LongRange(next, 3));
+      int taken = buffer.take(dest, 3);
+      for (int i = 0; i < taken; i++) {
+        assertEquals(expected++, dest[i]);
+      }
+    }
+    assertEquals(next, expected);
+  }
+
+  @Test(timeout = 60_000)
+  public void concurrentProducersAndConsumersNeitherDuplicateNorLose() throws Exception {
+    MpmcRingBuffer buffer = TestBuffers.withoutPadding(new MpmcRingBuffer(64, 20, 80));
+    TestBuffers.assertNoDuplicateNoLoss(buffer, 4, 4, 50_000);
+    assertEquals(0, buffer.size());
+  }
+}
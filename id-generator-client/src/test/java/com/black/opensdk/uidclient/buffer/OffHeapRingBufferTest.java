@@ -0,0 +1,73 @@
+package com.black.opensdk.uidclient.buffer;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.black.opensdk.uidclient.exception.BufferEmptyException;
+import org.junit.Test;
+
+public class OffHeapRingBufferTest {
+
+  @Test
+  public void takesInPutOrderUpToBufferSize() {
+    // bufferSize need not be a power of 2, the ring is rounded up to 8 slots
+    OffHeapRingBuffer buffer = TestBuffers.withoutPadding(new OffHeapRingBuffer(6, 20, 80));
+    for (long uid = 1; uid <= 6; uid++) {
+      assertTrue(buffer.put(uid));
+    }
+    assertFalse("buffer is full", buffer.put(7));
+    for (long uid = 1; uid <= 6; uid++) {
+      assertEquals(uid, buffer.take());
+    }
+    assertEquals(0, buffer.size());
+  }
+
+  @Test(expected = BufferEmptyException.class)
+  public void takeFromEmptyBufferIsRejected() {
+    TestBuffers.withoutPadding(new OffHeapRingBuffer(8)).take();
+  }
+
+  @Test
+  public void putBatchAcceptsOnlyFreeSlotsAndWrapsAround() {
+    OffHeapRingBuffer buffer = TestBuffers.withoutPadding(new OffHeapRingBuffer(5, 20, 80));
+    long[] dest = new long[4];
+    long next = 0;
+    long expected = 0;
+    for (int round = 0; round < 1000; round++) {
+      next += buffer.putBatch(new LongRange(next, 4));
+      int taken = buffer.take(dest, 3);
+      for (int i = 0; i < taken; i++) {
+        assertEquals(expected++, dest[i]);
+      }
+      assertTrue(buffer.size() <= 5);
+    }
+
+    assertEquals(next - expected, buffer.size());
+    assertEquals(5 - buffer.size(), buffer.putBatch(new long[]{-1, -2, -3, -4, -5}, 0, 5));
+    assertEquals(0, buffer.paddingNums());
+  }
+
+  @Test
+  public void batchTakeCopiesAvailableUids() {
+    OffHeapRingBuffer buffer = TestBuffers.withoutPadding(new OffHeapRingBuffer(8));
+    assertEquals(3, buffer.putBatch(new long[]{7, 8, 9}, 0, 3));
+    long[] dest = new long[5];
+    assertEquals(3, buffer.take(dest, 5));
+    assertArrayEquals(new long[]{7, 8, 9, 0, 0}, dest);
+    assertEquals(0, buffer.take(dest, 5));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void bufferSizeIsCappedBeforeAllocation() {
+    new OffHeapRingBuffer(OffHeapRingBuffer.MAX_RING_SIZE + 1);
+  }
+
+  @Test(timeout = 60_000)
+  public void concurrentProducersAndConsumersNeitherDuplicateNorLose() throws Exception {
+    OffHeapRingBuffer buffer = TestBuffers.withoutPadding(new OffHeapRingBuffer(64));
+    TestBuffers.assertNoDuplicateNoLoss(buffer, 4, 4, 50_000);
+    assertEquals(0, buffer.size());
+  }
+}
@@ -0,0 +1,31 @@
+package com.black.opensdk.uidclient.buffer;
+
+import static org.junit.Assert.assertEquals;
+
+import com.black.opensdk.uidclient.exception.BufferEmptyException;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+public class RingBufferTest {
+
+  @Test(timeout = 10_000)
+  public void timedTakeServesUidsInOrderThenRejects() {
+    RingBuffer buffer = TestBuffers.withoutPadding(new RingBuffer(16));
+    assertEquals(10, buffer.putBatch(new LongRange(100, 10)));
+
+    for (long i = 0; i < 10; i++) {
+      assertEquals(100 + i, buffer.take(10, TimeUnit.MILLISECONDS));
+    }
+    assertEquals(15, buffer.paddingNums());
+    try {
+      buffer.take(10, TimeUnit.MILLISECONDS);
+      throw new AssertionError("expected the reject handler");
+    } catch (BufferEmptyException expected) {
+      // the empty poll did not move the cursor
+      assertEquals(buffer.getTail(), buffer.getCursor());
+    }
+
+    assertEquals(1, buffer.putBatch(new LongRange(200, 1)));
+    assertEquals(200L, buffer.take(10, TimeUnit.MILLISECONDS));
+  }
+}
@@ -0,0 +1,113 @@
+package com.black.opensdk.uidclient.buffer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashSet;
+import java.util.Set;
+import org.junit.Test;
+
+public class SegmentBufferTest {
+
+  @Test
+  public void singlePutsAreTakenWithoutFlushingByTheProducer() {
+    SegmentBuffer buffer = TestBuffers.withoutPadding(new SegmentBuffer(1000));
+    // non-contiguous, fewer than a full stage
+    for (int i = 0; i < 10; i++) {
+      assertTrue(buffer.put(i * 3L));
+    }
+    assertEquals(10, buffer.size());
+    for (int i = 0; i < 10; i++) {
+      assertEquals(i * 3L, buffer.take());
+    }
+    assertEquals(0, buffer.size());
+  }
+
+  @Test
+  public void mixedRunsKeepEveryUidOnce() {
+    SegmentBuffer buffer = TestBuffers.withoutPadding(new SegmentBuffer(10_000));
+    long[] uids = new long[1000];
+    int n = 0;
+    long next = 0;
+    while (n < uids.length) {
+      // runs of 1, 5, 20 and 40 contiguous uids separated by gaps
+      int run = new int[]{1, 5, 20, 40}[n % 4];
+      for (int i = 0; i < run && n < uids.length; i++) {
+        uids[n++] = next++;
+      }
+      next += 10;
+    }
+    assertEquals(uids.length, buffer.putBatch(uids, 0, uids.length));
+    assertEquals(uids.length, buffer.size());
+
+    Set<Long> taken = new HashSet<>();
+    long[] dest = new long[37];
+    int count;
+    while ((count = buffer.take(dest, dest.length)) > 0) {
+      for (int i = 0; i < count; i++) {
+        assertTrue(taken.add(dest[i]));
+      }
+    }
+    assertEquals(uids.length, taken.size());
+    for (long uid : uids) {
+      assertTrue(taken.contains(uid));
+    }
+  }
+
+  @Test
+  public void rejectsPutsBeyondBufferSize() {
+    SegmentBuffer buffer = TestBuffers.withoutPadding(new SegmentBuffer(100));
+    buffer.setRejectedPutHandler((b, uid) -> {
+    });
+    assertEquals(90, buffer.putBatch(new LongRange(0, 90)));
+    for (int i = 0; i < 10; i++) {
+      assertTrue(buffer.put(1000L + i * 2));
+    }
+    assertFalse(buffer.put(5000L));
+    assertEquals(0, buffer.putBatch(new LongRange(6000, 10)));
+    assertEquals(0, buffer.paddingNums());
+    assertEquals(100, buffer.take(new long[200], 200));
+  }
+
+  @Test(timeout = 60_000)
+  public void concurrentProducersAndConsumersNeitherDuplicateNorLose() throws Exception {
+    SegmentBuffer buffer = TestBuffers.withoutPadding(new SegmentBuffer(256));
+    buffer.setRejectedPutHandler((b, uid) -> {
+    });
+    TestBuffers.assertNoDuplicateNoLoss(buffer, 4, 4, 20_000);
+  }
+
+  @Test(timeout = 60_000)
+  public void concurrentRangesNeitherDuplicateNorLose() throws Exception {
+    SegmentBuffer buffer = TestBuffers.withoutPadding(new SegmentBuffer(256));
+    buffer.setRejectedPutHandler((b, uid) -> {
+    });
+    int producers = 4;
+    int perProducer = 5_000;
+    Thread[] threads = new Thread[producers];
+    for (int p = 0; p < producers; p++) {
+      long base = (long) p * perProducer;
+      threads[p] = new Thread(() -> {
+        long next = base;
+        while (next < base + perProducer) {
+          int length = (int) Math.min(50, base + perProducer - next);
+          next += buffer.putBatch(new LongRange(next, length));
+        }
+      });
+      threads[p].start();
+    }
+    Set<Long> taken = new HashSet<>();
+    long[] dest = new long[16];
+    while (taken.size() < producers * perProducer) {
+      int count = buffer.take(dest, dest.length);
+      for (int i = 0; i < count; i++) {
+        assertTrue("duplicate " + dest[i], taken.add(dest[i]));
+      }
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    assertEquals(0, buffer.size());
+  }
+}
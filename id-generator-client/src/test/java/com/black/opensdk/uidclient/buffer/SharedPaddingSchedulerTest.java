@@ -0,0 +1,133 @@
+package com.black.opensdk.uidclient.buffer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.Test;
+
+public class SharedPaddingSchedulerTest {
+
+  @Test(timeout = 10_000)
+  public void closestToEmptyBufferIsPaddedFirst() throws Exception {
+    SharedPaddingScheduler scheduler = new SharedPaddingScheduler(1);
+    Queue<String> order = new ConcurrentLinkedQueue<>();
+    CountDownLatch blocking = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    try {
+      // keep the only worker busy while the others are queued
+      BufferPaddingExecutor busy = executor(scheduler, new ArrayBuffer(64), 0, count -> {
+        blocking.countDown();
+        await(release);
+        order.add("busy");
+      });
+      BufferPaddingExecutor almostFull = executor(scheduler, new ArrayBuffer(64), 50,
+          count -> order.add("almostFull"));
+      BufferPaddingExecutor halfFull = executor(scheduler, new ArrayBuffer(64), 30,
+          count -> order.add("halfFull"));
+      BufferPaddingExecutor almostEmpty = executor(scheduler, new ArrayBuffer(64), 5,
+          count -> order.add("almostEmpty"));
+
+      assertTrue(busy.asyncPadding());
+      assertTrue(blocking.await(5, TimeUnit.SECONDS));
+      assertTrue(almostFull.asyncPadding());
+      assertTrue(halfFull.asyncPadding());
+      assertTrue(almostEmpty.asyncPadding());
+      // a queued executor is queued once
+      assertTrue(almostEmpty.asyncPadding());
+      assertEquals(3, scheduler.getPendingCount());
+
+      release.countDown();
+      while (order.size() < 4) {
+        Thread.sleep(1);
+      }
+      assertEquals(Arrays.asList("busy", "almostEmpty", "halfFull", "almostFull"),
+          Arrays.asList(order.toArray()));
+    } finally {
+      release.countDown();
+      scheduler.shutdown();
+    }
+  }
+
+  @Test(timeout = 10_000)
+  public void unregisterDropsQueuedRequests() throws Exception {
+    SharedPaddingScheduler scheduler = new SharedPaddingScheduler(1);
+    CountDownLatch blocking = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    AtomicLong dropped = new AtomicLong();
+    try {
+      BufferPaddingExecutor busy = executor(scheduler, new ArrayBuffer(64), 0, count -> {
+        blocking.countDown();
+        await(release);
+      });
+      BufferPaddingExecutor removed = executor(scheduler, new ArrayBuffer(64), 0,
+          count -> dropped.incrementAndGet());
+      assertTrue(busy.asyncPadding());
+      assertTrue(blocking.await(5, TimeUnit.SECONDS));
+      assertTrue(removed.asyncPadding());
+      assertEquals(1, scheduler.getPendingCount());
+
+      removed.shutdown();
+      assertEquals(0, scheduler.getPendingCount());
+      assertFalse(removed.asyncPadding());
+      release.countDown();
+      Thread.sleep(50);
+      assertEquals(0, dropped.get());
+    } finally {
+      release.countDown();
+      scheduler.shutdown();
+    }
+  }
+
+  private static BufferPaddingExecutor executor(SharedPaddingScheduler scheduler,
+      ArrayBuffer buffer, int initial, OnProvide onProvide) {
+    if (initial > 0) {
+      assertEquals(initial, buffer.putBatch(new LongRange(0, initial)));
+    }
+    AtomicLong next = new AtomicLong(initial);
+    BufferPaddingExecutor executor = new BufferPaddingExecutor(buffer, new UidProvider() {
+      @Override
+      public List<Long> provide(int count) {
+        throw new UnsupportedOperationException();
+      }
+
+      @Override
+      public long[] provideArray(int count) {
+        onProvide.provide(count);
+        long[] uids = new long[count];
+        for (int i = 0; i < count; i++) {
+          uids[i] = next.getAndIncrement();
+        }
+        return uids;
+      }
+
+      @Override
+      public Long provide() {
+        throw new UnsupportedOperationException();
+      }
+    }, scheduler, false);
+    buffer.setBufferPaddingExecutor(executor);
+    return executor;
+  }
+
+  private static void await(CountDownLatch latch) {
+    try {
+      latch.await();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  @FunctionalInterface
+  private interface OnProvide {
+
+    void provide(int count);
+  }
+}
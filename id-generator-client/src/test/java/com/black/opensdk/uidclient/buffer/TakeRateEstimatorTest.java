@@ -0,0 +1,43 @@
+package com.black.opensdk.uidclient.buffer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+public class TakeRateEstimatorTest {
+
+  @Test
+  public void emptyBufferIsMostUrgentWithoutRate() {
+    TakeRateEstimator estimator = new TakeRateEstimator();
+    assertEquals(0L, estimator.timeToEmptyNanos(0));
+    assertEquals(Long.MAX_VALUE, estimator.timeToEmptyNanos(100));
+  }
+
+  @Test
+  public void estimatesTimeToEmptyFromTakes() throws Exception {
+    TakeRateEstimator estimator = new TakeRateEstimator();
+    estimator.sample(1000, 1000);
+    TimeUnit.MILLISECONDS.sleep(20);
+    // 500 uids taken, nothing padded
+    estimator.sample(1000, 500);
+
+    assertTrue(estimator.ratePerSecond() > 0D);
+    long nanos = estimator.timeToEmptyNanos(500);
+    assertTrue(nanos > 0 && nanos < Long.MAX_VALUE);
+    assertTrue(estimator.timeToEmptyNanos(250) < nanos);
+  }
+
+  @Test
+  public void burstAfterIdleGapIsNotAveragedOverTheGap() throws Exception {
+    TakeRateEstimator estimator = new TakeRateEstimator();
+    estimator.sample(1000, 1000);
+    TimeUnit.SECONDS.sleep(1);
+    // 1000 uids taken by a burst at the end of the gap
+    estimator.sample(1000, 0);
+
+    // averaged over the whole gap the rate would be below 1000 * (1 - 1/e) = 632/s
+    assertTrue(estimator.ratePerSecond() > 900D);
+  }
+}
@@ -0,0 +1,131 @@
+package com.black.opensdk.uidclient.buffer;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.ArrayList;
+import org.junit.Assert;
+
+/**
+ * 测试工具: 不执行异步添加的缓冲区, 以及多生产者/多消费者的不重复不丢失校验.
+ */
+final class TestBuffers {
+
+  private TestBuffers() {
+  }
+
+  /**
+   * 设置一个不执行异步添加的 executor, 缓冲区内容只由测试控制
+   */
+  static <T extends AbstractBuffer> T withoutPadding(T buffer) {
+    buffer.setBufferPaddingExecutor(new BufferPaddingExecutor(buffer, UNSUPPORTED, false) {
+      @Override
+      public boolean asyncPadding() {
+        return true;
+      }
+    });
+    return buffer;
+  }
+
+  static final UidProvider UNSUPPORTED = new UidProvider() {
+    @Override
+    public List<Long> provide(int count) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Long provide() {
+      throw new UnsupportedOperationException();
+    }
+  };
+
+  /**
+   * producers 个线程各自添加 perProducer 个不同的uid (缓冲区满时重试), consumers 个线程单个或批量获取,
+   * 校验获取到的uid不重复且全部获取.
+   */
+  static void assertNoDuplicateNoLoss(Buffer buffer, int producers, int consumers,
+      int perProducer) throws Exception {
+    long total = (long) producers * perProducer;
+    Set<Long> taken = ConcurrentHashMap.newKeySet();
+    AtomicLong duplicates = new AtomicLong();
+    AtomicLong remaining = new AtomicLong(total);
+    CountDownLatch start = new CountDownLatch(1);
+    ExecutorService threads = Executors.newFixedThreadPool(producers + consumers);
+    List<Future<?>> futures = new ArrayList<>();
+    try {
+      for (int p = 0; p < producers; p++) {
+        long base = (long) p * perProducer;
+        futures.add(threads.submit(() -> {
+          start.await();
+          long next = base;
+          long[] batch = new long[7];
+          while (next < base + perProducer) {
+            if ((next & 1) == 0) {
+              if (buffer.put(next)) {
+                next++;
+              } else {
+                Thread.yield();
+              }
+            } else {
+              int length = (int) Math.min(batch.length, base + perProducer - next);
+              for (int i = 0; i < length; i++) {
+                batch[i] = next + i;
+              }
+              int accepted = buffer.putBatch(batch, 0, length);
+              next += accepted;
+              if (accepted == 0) {
+                Thread.yield();
+              }
+            }
+          }
+          return null;
+        }));
+      }
+      for (int c = 0; c < consumers; c++) {
+        boolean batched = (c & 1) == 1;
+        futures.add(threads.submit(() -> {
+          start.await();
+          long[] dest = new long[5];
+          while (remaining.get() > 0) {
+            int count = 0;
+            if (batched) {
+              count = buffer.take(dest, dest.length);
+            } else {
+              try {
+                dest[0] = buffer.take();
+                count = 1;
+              } catch (RuntimeException e) {
+                // empty, retry
+              }
+            }
+            for (int i = 0; i < count; i++) {
+              if (!taken.add(dest[i])) {
+                duplicates.incrementAndGet();
+              }
+            }
+            if (count == 0) {
+              Thread.yield();
+            } else {
+              remaining.addAndGet(-count);
+            }
+          }
+          return null;
+        }));
+      }
+      start.countDown();
+      for (Future<?> future : futures) {
+        future.get(60, TimeUnit.SECONDS);
+      }
+    } finally {
+      threads.shutdownNow();
+    }
+    Assert.assertEquals("duplicates", 0, duplicates.get());
+    Assert.assertEquals("taken", total, taken.size());
+  }
+}
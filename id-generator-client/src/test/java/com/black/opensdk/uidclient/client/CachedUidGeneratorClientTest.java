@@ -0,0 +1,120 @@
+package com.black.opensdk.uidclient.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.black.opensdk.uidclient.buffer.UidProvider;
+import com.black.opensdk.uidclient.persist.UidSnapshotFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CachedUidGeneratorClientTest {
+
+  private static final long FRESH_UIDS = 1_000_000L;
+
+  private Path path;
+
+  @Before
+  public void setUp() throws Exception {
+    path = Files.createTempFile("uid", ".snapshot");
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    Files.deleteIfExists(path);
+  }
+
+  @Test(timeout = 10_000)
+  public void restartServesTheUidsLeftAtShutdown() throws Exception {
+    AtomicLong provided = new AtomicLong();
+    CachedUidGeneratorClient first = newClient(provided);
+    first.setLocalCacheSize(8);
+    first.init();
+    for (long i = 0; i < 10; i++) {
+      assertEquals(i, first.getUID());
+    }
+    first.destroy();
+
+    // the rest of the thread-local chunk comes first, then the buffer
+    CachedUidGeneratorClient second = newClient(new AtomicLong(FRESH_UIDS));
+    second.init();
+    try {
+      for (long uid = 10; uid < provided.get(); uid++) {
+        assertEquals(uid, second.getUID());
+      }
+      assertTrue(second.getUID() >= FRESH_UIDS);
+      assertEquals(0, new UidSnapshotFile(path).restore().length);
+    } finally {
+      second.destroy();
+    }
+  }
+
+  @Test(timeout = 10_000)
+  public void snapshotLargerThanTheBufferKeepsWhatFits() throws Exception {
+    long[] saved = new long[200];
+    for (int i = 0; i < saved.length; i++) {
+      saved[i] = i;
+    }
+    new UidSnapshotFile(path).save(saved, saved.length);
+
+    CachedUidGeneratorClient client = newClient(new AtomicLong(FRESH_UIDS));
+    client.init();
+    try {
+      int restored = 0;
+      long uid;
+      while ((uid = client.getUID()) < FRESH_UIDS) {
+        assertEquals(restored++, uid);
+      }
+      assertTrue(restored > 0 && restored <= 64);
+      // the uids that did not fit are dropped, never served by a later start
+      assertEquals(0, new UidSnapshotFile(path).restore().length);
+    } finally {
+      client.destroy();
+    }
+  }
+
+  @Test(timeout = 10_000)
+  public void corruptSnapshotIsIgnored() throws Exception {
+    Files.write(path, new byte[]{1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16, 17});
+
+    CachedUidGeneratorClient client = newClient(new AtomicLong(FRESH_UIDS));
+    client.init();
+    try {
+      assertEquals(FRESH_UIDS, client.getUID());
+    } finally {
+      client.destroy();
+    }
+  }
+
+  private CachedUidGeneratorClient newClient(AtomicLong next) {
+    CachedUidGeneratorClient client = new CachedUidGeneratorClient();
+    client.setInitBufferSize(64);
+    client.setSnapshotPath(path.toString());
+    client.setUidProvider(new UidProvider() {
+      @Override
+      public List<Long> provide(int count) {
+        throw new UnsupportedOperationException();
+      }
+
+      @Override
+      public long[] provideArray(int count) {
+        long[] uids = new long[count];
+        for (int i = 0; i < count; i++) {
+          uids[i] = next.getAndIncrement();
+        }
+        return uids;
+      }
+
+      @Override
+      public Long provide() {
+        return next.getAndIncrement();
+      }
+    });
+    return client;
+  }
+}
@@ -0,0 +1,222 @@
+package com.black.opensdk.uidclient.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.black.opensdk.uidclient.buffer.UidProvider;
+import com.black.opensdk.uidclient.exception.UidGenerateException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.Test;
+
+public class CoalescingUidFallbackTest {
+
+  @Test(timeout = 10_000)
+  public void concurrentCallersShareOneProviderCall() throws Exception {
+    Queue<Integer> requested = new ConcurrentLinkedQueue<>();
+    AtomicLong next = new AtomicLong();
+    CoalescingUidFallback fallback = new CoalescingUidFallback(provider(count -> {
+      requested.add(count);
+      long[] uids = new long[count];
+      for (int i = 0; i < count; i++) {
+        uids[i] = next.getAndIncrement();
+      }
+      return uids;
+    }), TimeUnit.MILLISECONDS.toMicros(500));
+
+    int callers = 8;
+    Queue<Long> results = new ConcurrentLinkedQueue<>();
+    Thread[] threads = start(callers, () -> results.add(fallback.provide()));
+    join(threads);
+
+    assertEquals(1, requested.size());
+    assertEquals(callers, (int) requested.peek());
+    Set<Long> distinct = new HashSet<>(results);
+    assertEquals(callers, distinct.size());
+  }
+
+  @Test(timeout = 10_000)
+  public void providerExceptionFailsEveryWaiter() throws Exception {
+    IllegalStateException down = new IllegalStateException("down");
+    CoalescingUidFallback fallback = new CoalescingUidFallback(provider(count -> {
+      throw down;
+    }), TimeUnit.MILLISECONDS.toMicros(200));
+
+    Queue<Throwable> errors = new ConcurrentLinkedQueue<>();
+    join(start(4, () -> {
+      try {
+        fallback.provide();
+      } catch (Throwable e) {
+        errors.add(e);
+      }
+    }));
+
+    assertEquals(4, errors.size());
+    for (Throwable error : errors) {
+      assertSame(down, error);
+    }
+  }
+
+  @Test(timeout = 10_000)
+  public void providerErrorFailsEveryWaiter() throws Exception {
+    CoalescingUidFallback fallback = new CoalescingUidFallback(provider(count -> {
+      throw new OutOfMemoryError("test");
+    }), TimeUnit.MILLISECONDS.toMicros(200));
+
+    AtomicInteger leaders = new AtomicInteger();
+    AtomicInteger followers = new AtomicInteger();
+    join(start(4, () -> {
+      try {
+        fallback.provide();
+      } catch (OutOfMemoryError e) {
+        leaders.incrementAndGet();
+      } catch (UidGenerateException e) {
+        followers.incrementAndGet();
+      }
+    }));
+
+    // the Error reaches the leader, the drained followers are not left parked
+    assertEquals(1, leaders.get());
+    assertEquals(3, followers.get());
+  }
+
+  @Test(timeout = 10_000)
+  public void interruptedQueuedFollowerGivesUp() throws Exception {
+    AtomicInteger requested = new AtomicInteger();
+    CoalescingUidFallback fallback = new CoalescingUidFallback(provider(count -> {
+      requested.addAndGet(count);
+      return new long[count];
+    }), TimeUnit.SECONDS.toMicros(1));
+
+    Thread leader = start(1, fallback::provide)[0];
+    awaitState(leader, Thread.State.TIMED_WAITING);
+    AtomicReference<Throwable> error = new AtomicReference<>();
+    AtomicReference<Boolean> interrupted = new AtomicReference<>();
+    Thread follower = start(1, () -> {
+      try {
+        fallback.provide();
+      } catch (UidGenerateException e) {
+        error.set(e);
+        interrupted.set(Thread.currentThread().isInterrupted());
+      }
+    })[0];
+    awaitState(follower, Thread.State.TIMED_WAITING);
+
+    long start = System.nanoTime();
+    follower.interrupt();
+    follower.join();
+    assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(500));
+    assertTrue(error.get() != null);
+    assertTrue(interrupted.get());
+
+    leader.join();
+    assertEquals(1, requested.get());
+  }
+
+  @Test(timeout = 10_000)
+  public void interruptedDrainedFollowerWaitsWithoutSpinning() throws Exception {
+    CountDownLatch entered = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    CoalescingUidFallback fallback = new CoalescingUidFallback(provider(count -> {
+      entered.countDown();
+      try {
+        release.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      long[] uids = new long[count];
+      for (int i = 0; i < count; i++) {
+        uids[i] = 100 + i;
+      }
+      return uids;
+    }), TimeUnit.MILLISECONDS.toMicros(300));
+
+    Thread leader = start(1, fallback::provide)[0];
+    awaitState(leader, Thread.State.TIMED_WAITING);
+    AtomicLong result = new AtomicLong(-1);
+    AtomicReference<Boolean> interrupted = new AtomicReference<>();
+    Thread follower = start(1, () -> {
+      result.set(fallback.provide());
+      interrupted.set(Thread.currentThread().isInterrupted());
+    })[0];
+    assertTrue(entered.await(5, TimeUnit.SECONDS));
+
+    follower.interrupt();
+    ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    long cpu = threads.getThreadCpuTime(follower.getId());
+    TimeUnit.MILLISECONDS.sleep(200);
+    long spent = threads.getThreadCpuTime(follower.getId()) - cpu;
+    assertTrue("follower spent " + spent + "ns", spent < TimeUnit.MILLISECONDS.toNanos(50));
+
+    release.countDown();
+    join(new Thread[]{leader, follower});
+    assertEquals(101L, result.get());
+    assertTrue(interrupted.get());
+  }
+
+  private static Thread[] start(int count, Runnable task) {
+    CountDownLatch ready = new CountDownLatch(1);
+    Thread[] threads = new Thread[count];
+    for (int i = 0; i < count; i++) {
+      threads[i] = new Thread(() -> {
+        try {
+          ready.await();
+        } catch (InterruptedException e) {
+          return;
+        }
+        task.run();
+      });
+      threads[i].start();
+    }
+    ready.countDown();
+    return threads;
+  }
+
+  private static void join(Thread[] threads) throws InterruptedException {
+    for (Thread thread : threads) {
+      thread.join();
+    }
+  }
+
+  private static void awaitState(Thread thread, Thread.State state) {
+    while (thread.getState() != state) {
+      Thread.yield();
+    }
+  }
+
+  private static UidProvider provider(ArrayProvider provider) {
+    return new UidProvider() {
+      @Override
+      public List<Long> provide(int count) {
+        throw new UnsupportedOperationException();
+      }
+
+      @Override
+      public Long provide() {
+        throw new UnsupportedOperationException();
+      }
+
+      @Override
+      public long[] provideArray(int count) {
+        return provider.provideArray(count);
+      }
+    };
+  }
+
+  @FunctionalInterface
+  private interface ArrayProvider {
+
+    long[] provideArray(int count);
+  }
+}
@@ -0,0 +1,118 @@
+package com.black.opensdk.uidclient.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.black.opensdk.uidclient.buffer.UidProvider;
+import com.black.opensdk.uidclient.persist.UidSnapshotFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.Test;
+
+public class MultiNamespaceUidClientTest {
+
+  @Test(timeout = 30_000)
+  public void threadCountStaysBoundedAsNamespacesGrow() throws Exception {
+    int workers = 2;
+    int before = Thread.activeCount();
+    MultiNamespaceUidClient client = new MultiNamespaceUidClient(workers);
+    try {
+      for (int i = 0; i < 20; i++) {
+        client.register("ns" + i, newClient(new AtomicLong(i * 1_000_000L)));
+      }
+      // drain a few namespaces below their low watermark to make the workers pad them
+      for (int i = 0; i < 5; i++) {
+        for (int j = 0; j < 60; j++) {
+          client.getUID("ns" + i);
+        }
+      }
+      // the shared workers and the schedule thread, whatever the count of namespaces
+      assertTrue(Thread.activeCount() - before <= workers + 1);
+    } finally {
+      client.destroy();
+    }
+  }
+
+  @Test(timeout = 10_000)
+  public void duplicateNamespaceIsRejected() throws Exception {
+    MultiNamespaceUidClient client = new MultiNamespaceUidClient(1);
+    try {
+      CachedUidGeneratorClient first = newClient(new AtomicLong());
+      client.register("order", first);
+      CachedUidGeneratorClient second = newClient(new AtomicLong(1_000_000L));
+      try {
+        client.register("order", second);
+        throw new AssertionError("expected the duplicate to be rejected");
+      } catch (IllegalArgumentException expected) {
+        // the rejected client is not initialized
+        assertNull(second.getAbstractBuffer());
+      }
+      assertTrue(client.getClient("order") == first);
+      assertEquals(0L, client.getUID("order"));
+    } finally {
+      client.destroy();
+    }
+  }
+
+  @Test(timeout = 10_000)
+  public void unregisterDestroysOnlyItsOwnClient() throws Exception {
+    Path orderSnapshot = Files.createTempFile("order", ".snapshot");
+    Path paySnapshot = Files.createTempFile("pay", ".snapshot");
+    MultiNamespaceUidClient client = new MultiNamespaceUidClient(1);
+    try {
+      CachedUidGeneratorClient order = newClient(new AtomicLong());
+      order.setSnapshotPath(orderSnapshot.toString());
+      CachedUidGeneratorClient pay = newClient(new AtomicLong(1_000_000L));
+      pay.setSnapshotPath(paySnapshot.toString());
+      client.register("order", order);
+      client.register("pay", pay);
+
+      client.unregister("order");
+      assertFalse(client.getNamespaces().contains("order"));
+      assertTrue(new UidSnapshotFile(orderSnapshot).restore().length > 0);
+      assertEquals(0, Files.size(paySnapshot));
+
+      // the other namespace still takes and is still padded by the shared workers
+      Set<Long> uids = new HashSet<>();
+      for (int i = 0; i < 200; i++) {
+        assertTrue(uids.add(client.getUID("pay")));
+      }
+    } finally {
+      client.destroy();
+      Files.deleteIfExists(orderSnapshot);
+      Files.deleteIfExists(paySnapshot);
+    }
+  }
+
+  private static CachedUidGeneratorClient newClient(AtomicLong next) {
+    CachedUidGeneratorClient client = new CachedUidGeneratorClient();
+    client.setInitBufferSize(64);
+    client.setUidProvider(new UidProvider() {
+      @Override
+      public List<Long> provide(int count) {
+        throw new UnsupportedOperationException();
+      }
+
+      @Override
+      public long[] provideArray(int count) {
+        long[] uids = new long[count];
+        for (int i = 0; i < count; i++) {
+          uids[i] = next.getAndIncrement();
+        }
+        return uids;
+      }
+
+      @Override
+      public Long provide() {
+        return next.getAndIncrement();
+      }
+    });
+    return client;
+  }
+}
@@ -0,0 +1,135 @@
+package com.black.opensdk.uidclient.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.black.opensdk.uidclient.buffer.BufferPaddingExecutor;
+import com.black.opensdk.uidclient.buffer.LongRange;
+import com.black.opensdk.uidclient.buffer.MpmcRingBuffer;
+import com.black.opensdk.uidclient.buffer.UidProvider;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.Test;
+
+public class ThreadLocalUidCacheTest {
+
+  @Test
+  public void refillsTheChunkFromTheBuffer() {
+    MpmcRingBuffer buffer = bufferOf(0, 40);
+    ThreadLocalUidCache cache = new ThreadLocalUidCache(buffer, 10);
+
+    for (long i = 0; i < 15; i++) {
+      assertEquals(i, cache.take());
+    }
+    // two chunks of 10 were taken for 15 uids
+    assertEquals(20, buffer.size());
+  }
+
+  @Test
+  public void fallsBackToTheBufferOnceTheChunkIsExhausted() {
+    MpmcRingBuffer buffer = bufferOf(0, 5);
+    AtomicLong rejected = new AtomicLong();
+    buffer.setRejectedTakeHandler(b -> {
+      rejected.incrementAndGet();
+      throw new Rejected();
+    });
+    ThreadLocalUidCache cache = new ThreadLocalUidCache(buffer, 10);
+
+    // a partial chunk is served first
+    for (long i = 0; i < 5; i++) {
+      assertEquals(i, cache.take());
+    }
+    assertEquals(0, buffer.size());
+    try {
+      cache.take();
+      throw new AssertionError("expected the reject handler");
+    } catch (Rejected expected) {
+      assertEquals(1, rejected.get());
+    }
+
+    buffer.putBatch(new LongRange(100, 3));
+    assertEquals(100L, cache.take());
+    assertEquals(0, buffer.size());
+  }
+
+  @Test(timeout = 10_000)
+  public void waitsUpToTheTimeoutOnAnEmptyBuffer() {
+    MpmcRingBuffer buffer = bufferOf(0, 0);
+    buffer.setRejectedTakeHandler(b -> {
+      throw new Rejected();
+    });
+    long timeoutNanos = TimeUnit.MILLISECONDS.toNanos(50);
+    ThreadLocalUidCache cache = new ThreadLocalUidCache(buffer, 10, timeoutNanos);
+
+    long start = System.nanoTime();
+    try {
+      cache.take();
+      throw new AssertionError("expected the reject handler");
+    } catch (Rejected expected) {
+      assertTrue(System.nanoTime() - start >= timeoutNanos);
+    }
+  }
+
+  @Test(timeout = 10_000)
+  public void drainReturnsTheChunksOfAllThreadsOnce() throws Exception {
+    MpmcRingBuffer buffer = bufferOf(0, 100);
+    ThreadLocalUidCache cache = new ThreadLocalUidCache(buffer, 10);
+    long[] takenByOther = new long[1];
+    Thread other = new Thread(() -> takenByOther[0] = cache.take());
+    other.start();
+    other.join();
+    long taken = cache.take();
+
+    long[] drained = cache.drain();
+    assertEquals(18, drained.length);
+    Set<Long> uids = new HashSet<>();
+    for (long uid : drained) {
+      assertTrue(uids.add(uid));
+    }
+    assertFalse(uids.contains(taken));
+    assertFalse(uids.contains(takenByOther[0]));
+    assertEquals(0, cache.drain().length);
+
+    // a drained chunk is not refilled, takes go to the buffer one at a time
+    long size = buffer.size();
+    long next = cache.take();
+    assertFalse(uids.contains(next));
+    assertEquals(size - 1, buffer.size());
+  }
+
+  private static MpmcRingBuffer bufferOf(long start, int length) {
+    MpmcRingBuffer buffer = new MpmcRingBuffer(128);
+    // padding requests are accepted but never fill the buffer
+    buffer.setBufferPaddingExecutor(new BufferPaddingExecutor(buffer, UNSUPPORTED, false) {
+      @Override
+      public boolean asyncPadding() {
+        return true;
+      }
+    });
+    if (length > 0) {
+      assertEquals(length, buffer.putBatch(new LongRange(start, length)));
+    }
+    return buffer;
+  }
+
+  private static final UidProvider UNSUPPORTED = new UidProvider() {
+    @Override
+    public List<Long> provide(int count) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Long provide() {
+      throw new UnsupportedOperationException();
+    }
+  };
+
+  private static class Rejected extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+  }
+}
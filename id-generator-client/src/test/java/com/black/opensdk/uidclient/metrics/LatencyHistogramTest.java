@@ -0,0 +1,88 @@
+package com.black.opensdk.uidclient.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.ThreadLocalRandom;
+import org.junit.Test;
+
+public class LatencyHistogramTest {
+
+  @Test
+  public void smallValuesAreExact() {
+    for (int v = 0; v < 8; v++) {
+      assertEquals(v, LatencyHistogram.bucketIndex(v));
+      assertEquals(v, LatencyHistogram.upperBound(v));
+    }
+    // the first power of 2 range starts right after
+    assertEquals(8, LatencyHistogram.bucketIndex(8));
+    assertEquals(8, LatencyHistogram.upperBound(8));
+  }
+
+  @Test
+  public void upperBoundIsWithinOneEighthOfTheValue() {
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    for (int i = 0; i < 100_000; i++) {
+      long value = random.nextLong(Long.MAX_VALUE) >>> random.nextInt(63);
+      long upper = LatencyHistogram.upperBound(LatencyHistogram.bucketIndex(value));
+      assertTrue(value + " -> " + upper, upper >= value);
+      assertTrue(value + " -> " + upper, upper - value <= value / 8);
+    }
+  }
+
+  @Test
+  public void bucketsAreContiguous() {
+    for (int i = 0; i < LatencyHistogram.bucketIndex(Long.MAX_VALUE); i++) {
+      long upper = LatencyHistogram.upperBound(i);
+      assertEquals(i, LatencyHistogram.bucketIndex(upper));
+      assertEquals(i + 1, LatencyHistogram.bucketIndex(upper + 1));
+    }
+  }
+
+  @Test
+  public void topBucketReachesLongMaxValue() {
+    int top = LatencyHistogram.bucketIndex(Long.MAX_VALUE);
+    assertEquals(Long.MAX_VALUE, LatencyHistogram.upperBound(top));
+    assertEquals(top, LatencyHistogram.bucketIndex(Long.MAX_VALUE - (1L << 58)));
+
+    LatencyHistogram histogram = new LatencyHistogram();
+    histogram.record(Long.MAX_VALUE);
+    histogram.record(-5);
+    assertEquals(Long.MAX_VALUE, histogram.getMax());
+    assertEquals(0, histogram.getPercentile(50));
+    assertEquals(Long.MAX_VALUE, histogram.getPercentile(100));
+  }
+
+  @Test
+  public void percentilesAreBoundedByTheMax() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    assertEquals(0, histogram.getPercentile(99));
+    for (int v = 1; v <= 100; v++) {
+      histogram.record(v);
+    }
+    assertEquals(100, histogram.getCount());
+    assertEquals(50.5, histogram.getMean(), 1e-9);
+    assertEquals(1, histogram.getPercentile(0));
+    assertEquals(51, histogram.getPercentile(50));
+    assertEquals(100, histogram.getPercentile(99));
+    assertEquals(100, histogram.getPercentile(100));
+  }
+
+  @Test
+  public void percentileAcrossMergedHistograms() {
+    LatencyHistogram fast = new LatencyHistogram();
+    LatencyHistogram slow = new LatencyHistogram();
+    for (int i = 0; i < 90; i++) {
+      fast.record(5);
+    }
+    for (int i = 0; i < 10; i++) {
+      slow.record(1000);
+    }
+
+    assertEquals(5, LatencyHistogram.getPercentile(90, fast, slow));
+    long p95 = LatencyHistogram.getPercentile(95, fast, slow);
+    assertTrue(p95 >= 1000 && p95 <= 1000 + 1000 / 8);
+    assertEquals(5, fast.getPercentile(95));
+    assertEquals(0, LatencyHistogram.getPercentile(50, new LatencyHistogram()));
+  }
+}
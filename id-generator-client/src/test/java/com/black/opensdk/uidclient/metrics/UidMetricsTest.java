@@ -0,0 +1,54 @@
+package com.black.opensdk.uidclient.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class UidMetricsTest {
+
+  @Test
+  public void countersAndLatenciesAppearInTheSnapshot() {
+    UidMetrics metrics = new UidMetrics(1);
+    assertTrue(metrics.sampleTake());
+    metrics.recordTakes(3);
+    metrics.recordTakes(2);
+    metrics.recordFallback();
+    metrics.recordPaddedUids(64);
+    for (int v = 1; v <= 1000; v++) {
+      metrics.recordTakeLatency(v);
+    }
+    metrics.recordPadding(7);
+
+    MetricsSnapshot snapshot = metrics.snapshot();
+    assertEquals(5, snapshot.getTakeCount());
+    assertEquals(1, snapshot.getFallbackCount());
+    assertEquals(64, snapshot.getPaddedUidCount());
+    assertEquals(1, snapshot.getPaddingCount());
+    assertEquals(7, snapshot.getPaddingLatency().getMax());
+
+    MetricsSnapshot.Latency take = snapshot.getTakeLatency();
+    assertEquals(1000, take.getCount());
+    assertEquals(1000, take.getMax());
+    assertTrue(take.getP50() >= 500 && take.getP50() <= 500 + 500 / 8);
+    assertTrue(take.getP99() >= 990 && take.getP99() <= 1000);
+    assertEquals(metrics.getTakeLatencyP99Nanos(), take.getP99());
+  }
+
+  @Test
+  public void countingHandlersCountAndDelegate() {
+    UidMetrics metrics = new UidMetrics();
+    int[] delegated = new int[1];
+    metrics.countingPutHandler((buffer, uid) -> delegated[0]++).rejectPutBuffer(null, 1L);
+    try {
+      metrics.countingTakeHandler(buffer -> {
+        throw new IllegalStateException("empty");
+      }).rejectTakeBuffer(null);
+      throw new AssertionError("expected the delegate to throw");
+    } catch (IllegalStateException expected) {
+      assertEquals(1, metrics.getRejectedTakeCount());
+    }
+    assertEquals(1, delegated[0]);
+    assertEquals(1, metrics.getRejectedPutCount());
+  }
+}
@@ -0,0 +1,119 @@
+package com.black.opensdk.uidclient.persist;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.black.opensdk.uidclient.buffer.BufferPaddingExecutor;
+import com.black.opensdk.uidclient.buffer.MpmcRingBuffer;
+import com.black.opensdk.uidclient.buffer.UidProvider;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class MappedUidJournalTest {
+
+  /**
+   * 不在测试中落盘, 只有超出窗口的获取会落盘
+   */
+  private static final long NEVER_SYNC_MILLIS = 3_600_000L;
+
+  private Path path;
+
+  @Before
+  public void setUp() throws Exception {
+    path = Files.createTempFile("uid", ".journal");
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    Files.deleteIfExists(path);
+  }
+
+  @Test
+  public void recoversUntakenUidsAfterCrash() throws Exception {
+    int window = 8;
+    MpmcRingBuffer buffer = newBuffer(64);
+    MappedUidJournal journal = new MappedUidJournal(path, 64, window, NEVER_SYNC_MILLIS);
+    assertEquals(0, journal.open().length);
+    buffer.setJournal(journal);
+    journal.start(buffer);
+
+    for (long uid = 1000; uid < 1064; uid++) {
+      buffer.put(uid);
+    }
+    Set<Long> taken = new HashSet<>();
+    for (int i = 0; i < 20; i++) {
+      taken.add(buffer.take());
+    }
+    long[] chunk = new long[5];
+    buffer.take(chunk, chunk.length);
+    for (long uid : chunk) {
+      taken.add(uid);
+    }
+
+    // crash: the journal is not closed, a new run opens the same file
+    long[] recovered = new MappedUidJournal(path, 64, window, NEVER_SYNC_MILLIS).open();
+    assertTrue("recovered " + recovered.length, recovered.length >= 64 - 25 - window);
+    for (int i = 0; i < recovered.length; i++) {
+      assertTrue("taken uid recovered " + recovered[i], !taken.contains(recovered[i]));
+      assertEquals(1064 - recovered.length + i, recovered[i]);
+    }
+  }
+
+  @Test
+  public void recoversOnlyOnce() throws Exception {
+    MpmcRingBuffer buffer = newBuffer(16);
+    MappedUidJournal journal = new MappedUidJournal(path, 16, 4, NEVER_SYNC_MILLIS);
+    journal.open();
+    buffer.setJournal(journal);
+    journal.start(buffer);
+    for (long uid = 0; uid < 8; uid++) {
+      buffer.put(uid);
+    }
+    journal.close();
+
+    // the window of the last run is skipped, the file is cleared once recovered
+    long[] recovered = new MappedUidJournal(path, 16, 1, NEVER_SYNC_MILLIS).open();
+    assertEquals(4, recovered.length);
+    assertEquals(4, recovered[0]);
+    assertEquals(0, new MappedUidJournal(path, 16, 1, NEVER_SYNC_MILLIS).open().length);
+  }
+
+  @Test
+  public void ignoresInvalidFile() throws Exception {
+    Files.write(path, new byte[64]);
+    assertEquals(0, new MappedUidJournal(path, 16, 4, NEVER_SYNC_MILLIS).open().length);
+  }
+
+  @Test
+  public void defaultWindowIsFractionOfBuffer() {
+    assertEquals(1, MappedUidJournal.defaultWindow(1));
+    assertEquals(64, MappedUidJournal.defaultWindow(1024));
+  }
+
+  private static MpmcRingBuffer newBuffer(int bufferSize) {
+    MpmcRingBuffer buffer = new MpmcRingBuffer(bufferSize);
+    buffer.setBufferPaddingExecutor(new BufferPaddingExecutor(buffer, new UidProvider() {
+      @Override
+      public List<Long> provide(int count) {
+        throw new UnsupportedOperationException();
+      }
+
+      @Override
+      public Long provide() {
+        throw new UnsupportedOperationException();
+      }
+    }, false) {
+      @Override
+      public boolean asyncPadding() {
+        return true;
+      }
+    });
+    return buffer;
+  }
+}
@@ -0,0 +1,91 @@
+package com.black.opensdk.uidclient.persist;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class UidSnapshotFileTest {
+
+  private Path path;
+
+  @Before
+  public void setUp() throws Exception {
+    path = Files.createTempFile("uid", ".snapshot");
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    Files.deleteIfExists(path);
+  }
+
+  @Test
+  public void restoresSavedUidsOnce() throws Exception {
+    UidSnapshotFile snapshot = new UidSnapshotFile(path);
+    snapshot.save(new long[]{5, 6, 7, 100, 0}, 4);
+
+    assertArrayEquals(new long[]{5, 6, 7, 100}, snapshot.restore());
+    // consumed: a second start with the same file gets nothing
+    assertEquals(0, new UidSnapshotFile(path).restore().length);
+  }
+
+  @Test
+  public void smallerSnapshotOverwritesALargerOne() throws Exception {
+    UidSnapshotFile snapshot = new UidSnapshotFile(path);
+    snapshot.save(new long[]{1, 2, 3, 4, 5, 6}, 6);
+    snapshot.save(new long[]{9}, 1);
+
+    assertArrayEquals(new long[]{9}, snapshot.restore());
+  }
+
+  @Test
+  public void missingOrEmptyFileYieldsNothing() throws Exception {
+    assertEquals(0, new UidSnapshotFile(path).restore().length);
+    Files.delete(path);
+    assertEquals(0, new UidSnapshotFile(path).restore().length);
+  }
+
+  @Test
+  public void corruptHeaderIsIgnored() throws Exception {
+    new UidSnapshotFile(path).save(new long[]{1, 2, 3}, 3);
+    writeInt(0, 0x12345678);
+
+    assertEquals(0, new UidSnapshotFile(path).restore().length);
+  }
+
+  @Test
+  public void interruptedSaveIsIgnored() throws Exception {
+    new UidSnapshotFile(path).save(new long[]{1, 2, 3}, 3);
+    writeInt(4, UidSnapshotFile.STATE_WRITING);
+
+    assertEquals(0, new UidSnapshotFile(path).restore().length);
+  }
+
+  @Test
+  public void truncatedFileIsIgnored() throws Exception {
+    new UidSnapshotFile(path).save(new long[]{1, 2, 3}, 3);
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+      channel.truncate(channel.size() - 4);
+    }
+    assertEquals(0, new UidSnapshotFile(path).restore().length);
+
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+      channel.truncate(10);
+    }
+    assertEquals(0, new UidSnapshotFile(path).restore().length);
+  }
+
+  private void writeInt(long position, int value) throws Exception {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+      ByteBuffer buffer = ByteBuffer.allocate(Integer.BYTES).putInt(0, value);
+      channel.write(buffer, position);
+    }
+  }
+}
@@ -0,0 +1,146 @@
+package com.black.opensdk.uidclient.provider;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+public class CircuitBreakerTest {
+
+  @Test
+  public void opensAfterConsecutiveFailures() {
+    CircuitBreaker breaker = new CircuitBreaker(3, 1, 10, TimeUnit.SECONDS);
+    fail(breaker);
+    fail(breaker);
+    breaker.onSuccess(breaker.tryAcquire());
+    fail(breaker);
+    fail(breaker);
+    assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    assertNotEquals(CircuitBreaker.REJECTED, breaker.tryAcquire());
+
+    fail(breaker);
+    assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    assertEquals(CircuitBreaker.REJECTED, breaker.tryAcquire());
+  }
+
+  @Test
+  public void halfOpenLetsOneTrialThroughAndClosesOnSuccess() throws Exception {
+    CircuitBreaker breaker = new CircuitBreaker(1, 20, 1000, TimeUnit.MILLISECONDS);
+    fail(breaker);
+    TimeUnit.MILLISECONDS.sleep(40);
+
+    assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+    long trial = breaker.tryAcquire();
+    assertNotEquals(CircuitBreaker.REJECTED, trial);
+    assertEquals(CircuitBreaker.REJECTED, breaker.tryAcquire());
+
+    breaker.onSuccess(trial);
+    breaker.release(trial);
+    assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    assertNotEquals(CircuitBreaker.REJECTED, breaker.tryAcquire());
+  }
+
+  @Test
+  public void failedTrialReopensWithDoubledDuration() throws Exception {
+    CircuitBreaker breaker = new CircuitBreaker(1, 100, 10_000, TimeUnit.MILLISECONDS);
+    fail(breaker);
+    TimeUnit.MILLISECONDS.sleep(150);
+    fail(breaker);
+
+    // the second trip lasts 200ms, still open after the first duration
+    TimeUnit.MILLISECONDS.sleep(150);
+    assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    assertEquals(CircuitBreaker.REJECTED, breaker.tryAcquire());
+
+    TimeUnit.MILLISECONDS.sleep(100);
+    assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+    assertNotEquals(CircuitBreaker.REJECTED, breaker.tryAcquire());
+  }
+
+  @Test
+  public void releasedTrialIsNotCountedAsFailure() throws Exception {
+    CircuitBreaker breaker = new CircuitBreaker(1, 20, 1000, TimeUnit.MILLISECONDS);
+    fail(breaker);
+    TimeUnit.MILLISECONDS.sleep(40);
+
+    // e.g. the trial threw an Error or was rejected by the caller pool
+    breaker.release(breaker.tryAcquire());
+    assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+    assertNotEquals(CircuitBreaker.REJECTED, breaker.tryAcquire());
+  }
+
+  @Test
+  public void releaseDoesNotCountFailuresWhenClosed() {
+    CircuitBreaker breaker = new CircuitBreaker(2, 1, 10, TimeUnit.SECONDS);
+    for (int i = 0; i < 10; i++) {
+      long permit = breaker.tryAcquire();
+      assertNotEquals(CircuitBreaker.REJECTED, permit);
+      breaker.release(permit);
+    }
+    assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+  }
+
+  @Test
+  public void lateResultsOfCallsAllowedBeforeTheTripAreIgnored() throws Exception {
+    CircuitBreaker breaker = new CircuitBreaker(1, 20, 1000, TimeUnit.MILLISECONDS);
+    long lateSuccess = breaker.tryAcquire();
+    long lateFailure = breaker.tryAcquire();
+    fail(breaker);
+
+    breaker.onSuccess(lateSuccess);
+    assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+
+    TimeUnit.MILLISECONDS.sleep(40);
+    long trial = breaker.tryAcquire();
+    assertNotEquals(CircuitBreaker.REJECTED, trial);
+    // not the trial failing, must not reopen the breaker
+    breaker.onFailure(lateFailure);
+    assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+
+    breaker.onSuccess(trial);
+    assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+  }
+
+  @Test(timeout = 10_000)
+  public void concurrentFailuresTripOnlyOnce() throws Exception {
+    int threads = 16;
+    CircuitBreaker breaker = new CircuitBreaker(3, 100, 10_000, TimeUnit.MILLISECONDS);
+    long[] permits = new long[threads];
+    for (int i = 0; i < threads; i++) {
+      permits[i] = breaker.tryAcquire();
+    }
+
+    CountDownLatch start = new CountDownLatch(1);
+    Thread[] workers = new Thread[threads];
+    for (int i = 0; i < threads; i++) {
+      long permit = permits[i];
+      workers[i] = new Thread(() -> {
+        try {
+          start.await();
+        } catch (InterruptedException e) {
+          return;
+        }
+        breaker.onFailure(permit);
+      });
+      workers[i].start();
+    }
+    start.countDown();
+    for (Thread worker : workers) {
+      worker.join();
+    }
+
+    // a single trip opens for the base duration, not base << (threads - 1)
+    assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    TimeUnit.MILLISECONDS.sleep(150);
+    assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+    assertNotEquals(CircuitBreaker.REJECTED, breaker.tryAcquire());
+  }
+
+  private static void fail(CircuitBreaker breaker) {
+    long permit = breaker.tryAcquire();
+    breaker.onFailure(permit);
+    breaker.release(permit);
+  }
+}
@@ -0,0 +1,159 @@
+package com.black.opensdk.uidclient.provider;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.black.opensdk.uidclient.buffer.UidProvider;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+
+public class CompositeUidProviderTest {
+
+  @Test
+  public void failoverCallsProvidersInOrder() {
+    CountingProvider first = new CountingProvider(1L, 0);
+    CountingProvider second = new CountingProvider(2L, 0);
+    CountingProvider third = new CountingProvider(3L, 0);
+    CompositeUidProvider composite = new CompositeUidProvider(
+        Arrays.asList(first, second, third), CompositeUidProvider.Mode.FAILOVER);
+
+    assertEquals(1L, composite.provideArray(1)[0]);
+    first.failing = true;
+    assertEquals(2L, composite.provideArray(1)[0]);
+    second.failing = true;
+    assertEquals(3L, composite.provideArray(1)[0]);
+
+    assertEquals(3, first.calls.get());
+    assertEquals(2, second.calls.get());
+    assertEquals(1, third.calls.get());
+  }
+
+  @Test(timeout = 30_000)
+  public void latencyWeightedShiftsTrafficAwayFromSlowProvider() {
+    CountingProvider slow = new CountingProvider(1L, 20);
+    CountingProvider fast = new CountingProvider(2L, 0);
+    CompositeUidProvider composite = new CompositeUidProvider(Arrays.asList(slow, fast));
+
+    int calls = 300;
+    for (int i = 0; i < calls; i++) {
+      composite.provideArray(1);
+    }
+    assertTrue("slow provider served " + slow.calls.get(), slow.calls.get() < calls / 10);
+    assertTrue(composite.getLatencyNanos(0) > composite.getLatencyNanos(1));
+  }
+
+  @Test(timeout = 10_000)
+  public void raceReturnsFirstSuccessAndCancelsTheLoser() throws Exception {
+    CountDownLatch loserInterrupted = new CountDownLatch(1);
+    UidProvider hanging = new CountingProvider(1L, 0) {
+      @Override
+      public long[] provideArray(int count) {
+        try {
+          TimeUnit.SECONDS.sleep(10);
+        } catch (InterruptedException e) {
+          loserInterrupted.countDown();
+          throw new IllegalStateException("cancelled", e);
+        }
+        return new long[]{1L};
+      }
+    };
+    CountingProvider fast = new CountingProvider(2L, 0);
+    CompositeUidProvider composite = new CompositeUidProvider(
+        Arrays.asList(hanging, fast), CompositeUidProvider.Mode.RACE);
+    try {
+      long start = System.nanoTime();
+      assertEquals(2L, composite.provideArray(1)[0]);
+      assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+      assertTrue(loserInterrupted.await(5, TimeUnit.SECONDS));
+
+      // the cancelled racer is not counted as a failure
+      for (int i = 0; i < 5; i++) {
+        composite.provideArray(1);
+      }
+      assertEquals(CircuitBreaker.State.CLOSED, composite.getCircuitBreaker(0).getState());
+    } finally {
+      composite.shutdown();
+    }
+  }
+
+  @Test(timeout = 10_000)
+  public void raceWithoutFreeRacerLosesInsteadOfSpawningThreads() throws Exception {
+    CountDownLatch release = new CountDownLatch(1);
+    UidProvider blocking = new CountingProvider(1L, 0) {
+      @Override
+      public long[] provideArray(int count) {
+        try {
+          release.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        return new long[]{1L};
+      }
+    };
+    CompositeUidProvider composite = new CompositeUidProvider(
+        Arrays.asList(blocking), CompositeUidProvider.Mode.RACE, 1);
+    Thread holder = new Thread(() -> composite.provideArray(1));
+    holder.start();
+    try {
+      // the holder waits for the result once the only racer thread is taken
+      while (holder.getState() != Thread.State.WAITING) {
+        Thread.yield();
+      }
+      try {
+        composite.provideArray(1);
+        throw new AssertionError("expected no available provider");
+      } catch (RuntimeException e) {
+        assertEquals(CircuitBreaker.State.CLOSED, composite.getCircuitBreaker(0).getState());
+      }
+    } finally {
+      release.countDown();
+      holder.join();
+      composite.shutdown();
+    }
+  }
+
+  private static class CountingProvider implements UidProvider {
+
+    private final long uid;
+    private final long sleepMillis;
+    private final AtomicInteger calls = new AtomicInteger();
+    private volatile boolean failing;
+
+    CountingProvider(long uid, long sleepMillis) {
+      this.uid = uid;
+      this.sleepMillis = sleepMillis;
+    }
+
+    @Override
+    public List<Long> provide(int count) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public long[] provideArray(int count) {
+      calls.incrementAndGet();
+      if (sleepMillis > 0) {
+        try {
+          TimeUnit.MILLISECONDS.sleep(sleepMillis);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+      if (failing) {
+        throw new IllegalStateException("down");
+      }
+      long[] uids = new long[count];
+      Arrays.fill(uids, uid);
+      return uids;
+    }
+
+    @Override
+    public Long provide() {
+      return provideArray(1)[0];
+    }
+  }
+}
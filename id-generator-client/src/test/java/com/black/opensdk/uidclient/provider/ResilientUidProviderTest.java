@@ -0,0 +1,202 @@
+package com.black.opensdk.uidclient.provider;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.black.opensdk.uidclient.buffer.UidProvider;
+import com.black.opensdk.uidclient.exception.UidGenerateException;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+import org.junit.Test;
+
+public class ResilientUidProviderTest {
+
+  @Test(timeout = 10_000)
+  public void singleCallTimesOut() {
+    ResilientUidProvider provider = new ResilientUidProvider(new TestProvider(count -> {
+      sleep(5_000);
+      return new long[]{1L};
+    }));
+    provider.setTimeout(50, TimeUnit.MILLISECONDS);
+    try {
+      long start = System.nanoTime();
+      try {
+        provider.provide();
+        fail("expected timeout");
+      } catch (UidGenerateException e) {
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(2));
+      }
+      assertEquals(1L, provider.getTimeoutCount());
+    } finally {
+      provider.shutdown();
+    }
+  }
+
+  @Test(timeout = 10_000)
+  public void failedBatchesAreRetriedWithExponentialBackoff() {
+    List<Long> attempts = new CopyOnWriteArrayList<>();
+    ResilientUidProvider provider = new ResilientUidProvider(new TestProvider(count -> {
+      attempts.add(System.nanoTime());
+      if (attempts.size() < 4) {
+        throw new IllegalStateException("attempt " + attempts.size());
+      }
+      return new long[]{7L};
+    }));
+    provider.setMaxAttempts(4);
+    provider.setBackoff(40, 100, TimeUnit.MILLISECONDS);
+    try {
+      assertEquals(7L, provider.provideArray(1)[0]);
+      assertEquals(4, attempts.size());
+      // 40ms, then doubled to 80ms, then capped at 100ms
+      assertGap(attempts, 1, 40);
+      assertGap(attempts, 2, 80);
+      assertGap(attempts, 3, 100);
+      assertEquals(CircuitBreaker.State.CLOSED, provider.getCircuitBreaker().getState());
+    } finally {
+      provider.shutdown();
+    }
+  }
+
+  @Test(timeout = 10_000)
+  public void batchGivesUpAfterMaxAttempts() {
+    AtomicInteger calls = new AtomicInteger();
+    ResilientUidProvider provider = new ResilientUidProvider(new TestProvider(count -> {
+      calls.incrementAndGet();
+      throw new IllegalStateException("down");
+    }));
+    provider.setMaxAttempts(3);
+    provider.setBackoff(1, 1, TimeUnit.MILLISECONDS);
+    try {
+      provider.provideArray(1);
+      fail("expected failure");
+    } catch (UidGenerateException e) {
+      assertEquals(3, calls.get());
+    } finally {
+      provider.shutdown();
+    }
+  }
+
+  @Test(timeout = 20_000)
+  public void slowBatchIsHedgedAndTheFirstSuccessWins() {
+    int warmup = 40;
+    AtomicInteger calls = new AtomicInteger();
+    CountDownLatch loserInterrupted = new CountDownLatch(1);
+    ResilientUidProvider provider = new ResilientUidProvider(new TestProvider(count -> {
+      int call = calls.getAndIncrement();
+      if (call == warmup) {
+        // the primary of the hedged batch hangs until cancelled
+        try {
+          TimeUnit.SECONDS.sleep(10);
+        } catch (InterruptedException e) {
+          loserInterrupted.countDown();
+        }
+        return new long[]{-1L};
+      }
+      sleep(1);
+      return new long[]{call};
+    }));
+    provider.setBatchTimeout(5, TimeUnit.SECONDS);
+    try {
+      // record latency without hedging, a 1ms batch may exceed P95 of its peers
+      provider.setHedgePercentile(0);
+      for (int i = 0; i < warmup; i++) {
+        provider.provideArray(1);
+      }
+      assertEquals(0L, provider.getHedgedCallCount());
+      provider.setHedgePercentile(ResilientUidProvider.DEFAULT_HEDGE_PERCENTILE);
+
+      long start = System.nanoTime();
+      assertEquals(warmup + 1L, provider.provideArray(1)[0]);
+      assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(2));
+      assertEquals(1L, provider.getHedgedCallCount());
+      assertTrue(loserInterrupted.await(5, TimeUnit.SECONDS));
+      // the winner's own latency is recorded, not the hedge wait
+      assertTrue(provider.getBatchLatency().getMax() < TimeUnit.SECONDS.toNanos(1));
+    } catch (InterruptedException e) {
+      throw new AssertionError(e);
+    } finally {
+      provider.shutdown();
+    }
+  }
+
+  @Test(timeout = 10_000)
+  public void saturationDoesNotTripTheBreaker() throws Exception {
+    CountDownLatch release = new CountDownLatch(1);
+    CountDownLatch entered = new CountDownLatch(1);
+    ResilientUidProvider provider = new ResilientUidProvider(new TestProvider(count -> {
+      entered.countDown();
+      try {
+        release.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      return new long[]{1L};
+    }), 1);
+    provider.setTimeout(5, TimeUnit.SECONDS);
+    provider.setCircuitBreaker(new CircuitBreaker(2, 1, 10, TimeUnit.SECONDS));
+    Thread holder = new Thread(provider::provide);
+    holder.start();
+    try {
+      assertTrue(entered.await(5, TimeUnit.SECONDS));
+      for (int i = 0; i < 10; i++) {
+        try {
+          provider.provide();
+          fail("expected saturation");
+        } catch (UidGenerateException e) {
+          assertEquals(CircuitBreaker.State.CLOSED, provider.getCircuitBreaker().getState());
+        }
+      }
+    } finally {
+      release.countDown();
+      holder.join();
+      provider.shutdown();
+    }
+    assertEquals(0L, provider.getShortCircuitCount());
+  }
+
+  private static void assertGap(List<Long> attempts, int index, long minMillis) {
+    long gap = attempts.get(index) - attempts.get(index - 1);
+    assertTrue("gap " + index + " was " + gap + "ns",
+        gap >= TimeUnit.MILLISECONDS.toNanos(minMillis));
+  }
+
+  private static void sleep(long millis) {
+    try {
+      TimeUnit.MILLISECONDS.sleep(millis);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * provide() and provideArray(int) served by the given function
+   */
+  private static final class TestProvider implements UidProvider {
+
+    private final IntFunction<long[]> batch;
+
+    TestProvider(IntFunction<long[]> batch) {
+      this.batch = batch;
+    }
+
+    @Override
+    public List<Long> provide(int count) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public long[] provideArray(int count) {
+      return batch.apply(count);
+    }
+
+    @Override
+    public Long provide() {
+      return batch.apply(1)[0];
+    }
+  }
+}